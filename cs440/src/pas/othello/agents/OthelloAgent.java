@@ -1,9 +1,20 @@
 package src.pas.othello.agents;
 
 // SYSTEM IMPORTS
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 // JAVA PROJECT IMPORTS
 import edu.bu.pas.othello.agents.Agent;
@@ -13,8 +24,19 @@ import edu.bu.pas.othello.game.Game.GameView;
 import edu.bu.pas.othello.game.PlayerType;
 import edu.bu.pas.othello.traversal.Node;
 import edu.bu.pas.othello.utils.Coordinate;
+import src.pas.othello.book.OpeningBook;
+import src.pas.othello.endgame.EndgameSolver;
+import src.pas.othello.heuristics.EvaluationCache;
 import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.heuristics.PatternEvaluator;
 import src.pas.othello.ordering.MoveOrderer;
+import src.pas.othello.probcut.ProbCut;
+import src.pas.othello.telemetry.SearchTelemetry;
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.MoveList;
+import src.pas.othello.utils.SearchBoard;
+import src.pas.othello.utils.Symmetry;
+import src.pas.othello.utils.TranspositionTable;
 
 import java.util.Set;
 
@@ -33,6 +55,8 @@ public class OthelloAgent
 
         @Override
         public double getTerminalUtility() {
+            // Node.getOtherPlayerType() is the opponent of whoever is to move, not of MAX
+            PlayerType opponent = Game.getOtherPlayerType(getMaxPlayerType());
             PlayerType[][] cells = getGameView().getCells();
             double myCount = 0d;
             double opCount = 0d;
@@ -40,7 +64,7 @@ public class OthelloAgent
                 for (int c = 0; c < cells[0].length; c++) {
                     if (cells[r][c] == getMaxPlayerType()) {
                         myCount += 1d;
-                    } else if (cells[r][c] == getOtherPlayerType()) {
+                    } else if (cells[r][c] == opponent) {
                         opCount += 1d;
                     }
                 }
@@ -61,48 +85,67 @@ public class OthelloAgent
 
             if (myLegalMoves.size() == 0) {
                 // edge case no legal moves but non terminal
-                Game temp = new Game(this.getGameView());
-                temp.applyMove(null);
-                temp.setCurrentPlayerType(temp.getOtherPlayerType());
-                if (currentPlayer == PlayerType.WHITE) {
-                    temp.setTurnNumber(temp.getTurnNumber() + 1);
-                }
-                OthelloNode childNode = new OthelloNode(this.getMaxPlayerType(),
-                        temp.getView(), this.getDepth() + 1);
-                childNode.setLastMove(null);
-                children.add(childNode);
+                children.add(this.getChild(null));
             } else {
                 for (Coordinate move : myLegalMoves) {
-                    Game temp = new Game(this.getGameView());
-                    temp.applyMove(move);
-                    temp.setCurrentPlayerType(temp.getOtherPlayerType());
-                    if (currentPlayer == PlayerType.WHITE) {
-                        temp.setTurnNumber(temp.getTurnNumber() + 1);
-                    }
-                    OthelloNode childNode = new OthelloNode(this.getMaxPlayerType(),
-                            temp.getView(), this.getDepth() + 1);
-                    childNode.setLastMove(move);
-                    children.add(childNode);
+                    children.add(this.getChild(move));
                 }
             }
 
             return children;
         }
+
+        // a null move is a pass
+        public OthelloNode getChild(final Coordinate move) {
+            PlayerType currentPlayer = this.getGameView().getCurrentPlayerType();
+            Game temp = new Game(this.getGameView());
+            temp.applyMove(move);
+            temp.setCurrentPlayerType(temp.getOtherPlayerType());
+            if (currentPlayer == PlayerType.WHITE) {
+                temp.setTurnNumber(temp.getTurnNumber() + 1);
+            }
+            OthelloNode childNode = new OthelloNode(this.getMaxPlayerType(),
+                    temp.getView(), this.getDepth() + 1);
+            childNode.setLastMove(move);
+            return childNode;
+        }
     }
 
     // Keep Track of time
     public class TimeBudget {
         private final long deadlineNanos;
+        // null for the move's budget; set for a split point's budget, which also ends with its parent
+        private final TimeBudget parent;
+        // set by the main thread to end the helper searches early, or by a split point on a cutoff
+        private volatile boolean stopped = false;
 
         TimeBudget(long moveMs, long timeLimitMs) {
             long now = System.nanoTime();
             this.deadlineNanos = now + timeLimitMs * 1_000_000L;
+            this.parent = null;
+        }
+
+        // same deadline, but can be stopped without stopping parent
+        TimeBudget(TimeBudget parent) {
+            this.deadlineNanos = parent.deadlineNanos;
+            this.parent = parent;
         }
 
         boolean timeUp() {
+            if (stopped) {
+                return true;
+            }
+            return (parent != null) ? parent.timeUp() : System.nanoTime() >= deadlineNanos;
+        }
+
+        boolean pastDeadline() {
             return System.nanoTime() >= deadlineNanos;
         }
 
+        void stop() {
+            stopped = true;
+        }
+
         long remainingTimeHard() {
             return (deadlineNanos - System.nanoTime()) / 1_000_000L;
         }
@@ -113,6 +156,30 @@ public class OthelloAgent
         double emaNps = 0.0;
         int heuristicUsed = 0;
         int terminalUsed = 0;
+        double bestValue = 0.0;
+        long tableHits = 0;
+        long tableMisses = 0;
+        long tableCollisions = 0;
+        long researches = 0;
+        long aspirationFails = 0;
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        long tableCutoffs = 0;
+        long probCuts = 0;
+        // table hits on an entry stored from a different orientation of the same position
+        long foldedHits = 0;
+        long evalCacheProbes = 0;
+        long evalCacheHits = 0;
+        // Lazy SMP, per move: the main thread's deepest completed iteration, how many plies past it
+        // the deepest helper got, and the helpers' nodes. The main thread shares its table with the
+        // helpers, so mainDepth is not what one thread would reach; that baseline is a separate run
+        // with othello.threads=1.
+        int mainDepth = 0;
+        int helperLead = 0;
+        long helperNodes = 0;
+        // only the main thread's root may stop early once TimeManager confirms its best move
+        boolean allowEarlyStop = false;
+        boolean stoppedEarly = false;
 
         void onNode() {
             nodesThisDepth++;
@@ -138,50 +205,468 @@ public class OthelloAgent
         void resetTerminal() {
             terminalUsed = 0;
         }
+
+        // classify a TranspositionTable.probe result for a position in orientation s
+        void onTableProbe(long entry, int s) {
+            if (TranspositionTable.isEntry(entry)) {
+                tableHits++;
+                if (TranspositionTable.orientation(entry) != s) {
+                    foldedHits++;
+                }
+            } else if (entry == TranspositionTable.COLLISION) {
+                tableCollisions++;
+            } else {
+                tableMisses++;
+            }
+        }
+
+        // a node answered from the table; its value may rest on heuristics from an earlier search
+        void onTableCutoff() {
+            tableCutoffs++;
+        }
+
+        // a node answered by a shallow search's prediction (ProbCut)
+        void onProbCut() {
+            probCuts++;
+        }
+
+        // every value in this iteration came from real game ends, so deeper searches cannot change it
+        boolean isProven() {
+            return heuristicUsed == 0 && tableCutoffs == 0 && probCuts == 0;
+        }
+
+        // a null-window search that came back inside the full window and had to be repeated
+        void onResearch() {
+            researches++;
+        }
+
+        void onAspirationFail() {
+            aspirationFails++;
+        }
+
+        // beta cutoff caused by the moveIndex-th child searched
+        void onCutoff(int moveIndex) {
+            cutoffs++;
+            if (moveIndex == 0) {
+                firstMoveCutoffs++;
+            }
+        }
+
+        double firstMoveCutoffRate() {
+            return (cutoffs > 0) ? (double) firstMoveCutoffs / cutoffs : 0.0;
+        }
+
+        double tableHitRate() {
+            long probes = tableHits + tableMisses + tableCollisions;
+            return (probes > 0) ? (double) tableHits / probes : 0.0;
+        }
+
+        // share of table hits that only symmetry folding could have found
+        double foldedHitRate() {
+            return (tableHits > 0) ? (double) foldedHits / tableHits : 0.0;
+        }
+
+        double evalCacheHitRate() {
+            return (evalCacheProbes > 0) ? (double) evalCacheHits / evalCacheProbes : 0.0;
+        }
+
+        // add the counts of a search that ran on another thread
+        void merge(SearchStats other) {
+            nodesThisDepth += other.nodesThisDepth;
+            heuristicUsed += other.heuristicUsed;
+            terminalUsed += other.terminalUsed;
+            tableHits += other.tableHits;
+            tableMisses += other.tableMisses;
+            tableCollisions += other.tableCollisions;
+            researches += other.researches;
+            aspirationFails += other.aspirationFails;
+            cutoffs += other.cutoffs;
+            firstMoveCutoffs += other.firstMoveCutoffs;
+            tableCutoffs += other.tableCutoffs;
+            probCuts += other.probCuts;
+            foldedHits += other.foldedHits;
+            evalCacheProbes += other.evalCacheProbes;
+            evalCacheHits += other.evalCacheHits;
+        }
+    }
+
+    // a background search of the position we expect on our next turn
+    static final class Ponder {
+        final BitBoard position;
+        final TimeBudget budget;
+        final Future<SearchResult> result;
+
+        Ponder(BitBoard position, TimeBudget budget, Future<SearchResult> result) {
+            this.position = position;
+            this.budget = budget;
+            this.result = result;
+        }
     }
 
-    private boolean timeExpired = false;
+    // deepest iteration a search thread finished, and what it found
+    static final class SearchResult {
+        int depth = 0;
+        int move = BitBoard.PASS;
+        double value = 0.0;
+        long nodes = 0;
+
+        void onDepthCompleted(int depth, int move, double value) {
+            this.depth = depth;
+            this.move = move;
+            this.value = value;
+        }
+    }
+
+    // written by every search thread, read by the main thread once its own loop ends
+    private volatile boolean timeExpired = false;
 
     // exception to break alphaBeta to ensure we don't exceed time limit
     static final class TimeUp extends RuntimeException {
         private static final long serialVersionUID = 1L;
     }
 
-    public static boolean canAffordNextDepth(int currentDepth, long remainingMs, long safetyBufferMs,
-            int nodesAtCurrentDepth, int nodesAtPreviousDepth, double avgNodesPerSecond) {
-        if (remainingMs <= safetyBufferMs) {
-            return false;
+    // a stopped budget aborts the search the same way the deadline does, but only the deadline
+    // counts as the move's time running out
+    private void checkTime(TimeBudget t) {
+        if (t.timeUp()) {
+            if (t.pastDeadline()) {
+                timeExpired = true;
+            }
+            throw new TimeUp();
         }
-        double estimatedBranching = (double) nodesAtCurrentDepth / Math.max(1L, nodesAtPreviousDepth);
+    }
 
-        // pessimistic estimates (assume that branching will increase)
-        double conservativeBranching = Math.max(1.005, estimatedBranching);
+    // ALPHA_BETA: full-window alpha-beta at every node
+    // PVS: first child full window, later children null window with re-search on fail-high
+    // PVS_ASPIRATION: PVS, and each depth opens with a window around the previous depth's score
+    // YBWC: Young Brothers Wait on a ForkJoinPool of getThreads() workers, PVS below the split depth.
+    //       The table only supplies move hints and the root is ordered from the previous iteration's
+    //       result alone, so the root value and move do not depend on thread timing (node counts,
+    //       inner move orders and the table's contents do).
+    public enum SearchMode {
+        ALPHA_BETA,
+        PVS,
+        PVS_ASPIRATION,
+        YBWC
+    }
 
-        double predictedNodesNextDepth = nodesAtCurrentDepth * conservativeBranching;
+    // 2^19 buckets * 2 slots * 16 bytes = 16MB
+    public static final int DEFAULT_TABLE_BITS = 19;
+    // half-width of the first aspiration window (utility is in [-64, 64])
+    public static final double ASPIRATION_DELTA = 4.0;
+    // YBWC only splits nodes with at least this many plies left; shallower ones are searched serially
+    public static final int SPLIT_MIN_DEPTH = 4;
+    // first depth of iterative deepening unless an earlier search of the root lets it start deeper
+    public static final int MIN_START_DEPTH = 5;
+    // first depth a ponder search runs; a hit resumes the real search one deeper than it got
+    public static final int PONDER_START_DEPTH = MIN_START_DEPTH;
+    // kept back from every move's thinking time for returning the move
+    public static final long HARD_BUFFER_MS = 25L;
+    // with this many empties or fewer, try to solve the game exactly before searching heuristically
+    public static final int ENDGAME_EMPTIES = 16;
+    // share of the move's time the exact solver may use before falling back to the heuristic search
+    public static final double ENDGAME_TIME_FRACTION = 0.5;
+    // 2^17 buckets * 2 slots * 16 bytes = 4MB
+    public static final int ENDGAME_TABLE_BITS = 17;
+    // evaluation cache size (log2 slots, 16 bytes each) when -Dothello.evalCacheBits is not set.
+    // Off: only ~8% of leaves hit it, and the incremental evaluation is cheaper than the extra
+    // cache miss on the other 92%.
+    public static final int DEFAULT_EVAL_CACHE_BITS = 0;
+    // symmetric transpositions only turn up in the opening; past this many discs folding is skipped
+    public static final int SYMMETRY_MAX_DISCS = 20;
 
-        // assume that search speed will increase (based on observed behavior)
-        double adjustedAvgNodesPerSecond = avgNodesPerSecond * 1.4;
+    private final Random random;
+    private final TranspositionTable table;
+    private final SearchMode searchMode;
+    // Lazy SMP: threads - 1 helpers search the same root beside the main thread, sharing only the table
+    private final int threads;
+    private ExecutorService helperPool = null;
+    // -Dothello.ponder=true: search the predicted position on the opponent's time
+    private final boolean pondering;
+    private ExecutorService ponderPool = null;
+    private Ponder ponder = null;
+    // result of a ponder hit, picked up by the next searchBestMove
+    private SearchResult ponderResult = null;
+    // root and principal variation (from the table) of the last searchBestMove
+    private BitBoard previousRoot = null;
+    private int[] principalVariation = new int[0];
+    private ForkJoinPool forkJoinPool = null;
+    private final EndgameSolver endgameSolver;
+    private final TimeManager timeManager;
+    private final OpeningBook openingBook;
+    // key the table and evaluation cache on the canonical orientation (up to SYMMETRY_MAX_DISCS), so
+    // rotated and reflected transpositions share entries; -Dothello.symmetry=false turns it off
+    private final boolean symmetryFolding;
+    // leaf evaluations; null when -Dothello.evalCacheBits=0
+    private final EvaluationCache evaluationCache;
+    // leaves are evaluated with trained pattern tables (PatternEvaluator) unless -Dothello.eval=classic
+    // or the weights are missing; null when using Heuristics
+    private final PatternEvaluator patternEvaluator;
+    // Multi-ProbCut forward pruning in alphaBeta; null when -Dothello.probcut=false, when there are no
+    // parameters, or with Heuristics unless -Dothello.probcutParams names parameters fitted to it
+    private final ProbCut probCut;
+    // per-move search metrics, written after each game to -Dothello.telemetry (.csv for CSV, JSON
+    // lines otherwise); null when that is not set, and then nothing is recorded
+    private final SearchTelemetry telemetry;
+    // -Dothello.verbose=false drops the per-move and per-iteration progress lines, which cost time on
+    // the clock (telemetry records the same facts)
+    private final boolean verbose;
+    // heur.* weights for Heuristics, from the agent's config
+    private final Heuristics.Weights heuristicWeights;
+    // totals over the moves this agent searched (book, forced and solved moves excluded)
+    private int searchedMoves = 0;
+    private long searchedDepth = 0L;
+    private long searchedNodes = 0L;
+    private long searchNanos = 0L;
+    // root value of the last searchFixedDepth call
+    private double lastSearchValue = 0.0;
+    // boards for YBWC brother tasks; a worker can run several tasks at once while it joins
+    private final ConcurrentLinkedQueue<SearchBoard> spareBoards = new ConcurrentLinkedQueue<SearchBoard>();
+
+    // the game runner only knows this constructor, so the mode can also come from -Dothello.searchMode
+    // and the thread count from -Dothello.threads
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, System.getProperties());
+    }
 
-        // convert to ms
-        double predictedMillisNeeded = 1000.0 * (predictedNodesNextDepth / adjustedAvgNodesPerSecond);
+    // every othello.* and heur.* option read from config instead of the system properties, so agents
+    // configured differently can share a JVM (see Tournament)
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS,
+            final Properties config) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, DEFAULT_TABLE_BITS,
+                SearchMode.valueOf(config.getProperty("othello.searchMode", SearchMode.ALPHA_BETA.name())),
+                Integer.parseInt(config.getProperty("othello.threads", "1")),
+                config);
+    }
 
-        System.out.println("Predicted millis needed for depth " + (currentDepth + 1) + ": " + predictedMillisNeeded);
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS,
+            final SearchMode searchMode) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, DEFAULT_TABLE_BITS, searchMode);
+    }
 
-        return predictedMillisNeeded < (remainingMs - safetyBufferMs);
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS,
+            final int tableBits,
+            final SearchMode searchMode) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, tableBits, searchMode, 1);
     }
 
-    private final Random random;
+    public OthelloAgent(final PlayerType myPlayerType,
+            final long maxMoveThinkingTimeInMS,
+            final int tableBits,
+            final SearchMode searchMode,
+            final int threads) {
+        this(myPlayerType, maxMoveThinkingTimeInMS, tableBits, searchMode, threads, System.getProperties());
+    }
 
     public OthelloAgent(final PlayerType myPlayerType,
-            final long maxMoveThinkingTimeInMS) {
+            final long maxMoveThinkingTimeInMS,
+            final int tableBits,
+            final SearchMode searchMode,
+            final int threads,
+            final Properties config) {
         super(myPlayerType, maxMoveThinkingTimeInMS);
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, got " + threads);
+        }
         this.random = new Random();
+        this.table = new TranspositionTable(tableBits);
+        this.searchMode = searchMode;
+        this.threads = threads;
+        this.endgameSolver = new EndgameSolver(ENDGAME_TABLE_BITS);
+        // -Dothello.gameTimeMs sets a total clock for the game on top of the per-move limit
+        this.timeManager = new TimeManager(maxMoveThinkingTimeInMS, HARD_BUFFER_MS,
+                Long.parseLong(config.getProperty("othello.gameTimeMs", "0")));
+        this.openingBook = OpeningBook.loadDefault(config);
+        this.pondering = Boolean.parseBoolean(config.getProperty("othello.ponder"));
+        this.symmetryFolding = Boolean.parseBoolean(config.getProperty("othello.symmetry", "true"));
+        int evalCacheBits = Integer.parseInt(
+                config.getProperty("othello.evalCacheBits", Integer.toString(DEFAULT_EVAL_CACHE_BITS)));
+        this.evaluationCache = (evalCacheBits > 0) ? new EvaluationCache(evalCacheBits) : null;
+        this.patternEvaluator = "pattern".equals(config.getProperty("othello.eval", "pattern"))
+                ? loadPatterns(config)
+                : null;
+        // the shipped parameters were fitted to the pattern evaluation's values. YBWC never prunes
+        // with ProbCut: a cut depends on the window, and brothers read theirs when they happen to
+        // start, so its results would depend on thread timing
+        this.probCut = searchMode != SearchMode.YBWC
+                && (this.patternEvaluator != null || config.getProperty("othello.probcutParams") != null)
+                ? ProbCut.loadDefault(config)
+                : null;
+        String telemetryPath = config.getProperty("othello.telemetry");
+        this.telemetry = (telemetryPath != null && !telemetryPath.isEmpty())
+                ? new SearchTelemetry(Path.of(telemetryPath), myPlayerType.name(), SearchTelemetry.DEFAULT_CAPACITY)
+                : null;
+        this.verbose = Boolean.parseBoolean(config.getProperty("othello.verbose", "true"));
+        this.heuristicWeights = (config == System.getProperties())
+                ? Heuristics.Weights.DEFAULT
+                : Heuristics.Weights.fromProperties(config);
+    }
+
+    private static PatternEvaluator loadPatterns(final Properties config) {
+        PatternEvaluator patterns = PatternEvaluator.loadDefault(config);
+        if (patterns == null) {
+            System.err.println("Warning: no pattern weights found, evaluating with Heuristics");
+        }
+        return patterns;
     }
 
     public final Random getRandom() {
         return this.random;
     }
 
+    public final TranspositionTable getTable() {
+        return this.table;
+    }
+
+    public final SearchMode getSearchMode() {
+        return this.searchMode;
+    }
+
+    public final int getThreads() {
+        return this.threads;
+    }
+
+    public final OpeningBook getOpeningBook() {
+        return this.openingBook;
+    }
+
+    public final TimeManager getTimeManager() {
+        return this.timeManager;
+    }
+
+    public final double getLastSearchValue() {
+        return this.lastSearchValue;
+    }
+
+    public final PatternEvaluator getPatternEvaluator() {
+        return this.patternEvaluator;
+    }
+
+    public final int getSearchedMoves() {
+        return this.searchedMoves;
+    }
+
+    // average depth completed per searched move
+    public final double getAverageDepth() {
+        return (this.searchedMoves > 0) ? (double) this.searchedDepth / this.searchedMoves : 0.0;
+    }
+
+    public final long getSearchedNodes() {
+        return this.searchedNodes;
+    }
+
+    public final long getSearchNanos() {
+        return this.searchNanos;
+    }
+
+    public final SearchTelemetry getTelemetry() {
+        return this.telemetry;
+    }
+
+    public final ProbCut getProbCut() {
+        return this.probCut;
+    }
+
+    public final boolean isSymmetryFolding() {
+        return this.symmetryFolding;
+    }
+
+    // a pure function of the position, so every visit to it agrees on which key it uses
+    private boolean folds(long mine, long theirs) {
+        return this.symmetryFolding && Long.bitCount(mine | theirs) <= SYMMETRY_MAX_DISCS;
+    }
+
+    // orientation the table and evaluation cache see (mine, theirs) in: 0 unless folding
+    private int symmetryOf(long mine, long theirs) {
+        return this.folds(mine, theirs) ? Symmetry.canonicalSymmetry(mine, theirs) : 0;
+    }
+
+    // table key for a position in orientation s; hash is its Zobrist hash, used when not folding
+    private long tableKey(long mine, long theirs, boolean maxToMove, long hash, int s) {
+        return this.folds(mine, theirs) ? Symmetry.canonicalKey(mine, theirs, maxToMove, s) : hash;
+    }
+
+    // table entry for a position outside the search
+    private long probeTable(BitBoard position, int s) {
+        return this.table.probe(this.tableKey(position.getMine(), position.getTheirs(), position.isMaxToMove(),
+                position.getHash(), s));
+    }
+
+    // the entry's move, mapped from the table's orientation back to the position's
+    private static int tableMove(long entry, int s) {
+        return TranspositionTable.isEntry(entry)
+                ? Symmetry.inverseSquare(TranspositionTable.move(entry), s)
+                : BitBoard.PASS;
+    }
+
+    // key is the position's table key; the evaluation is symmetric, so under folding every
+    // orientation can share one cache slot
+    private double evaluateLeaf(SearchBoard b, long key, SearchStats stats) {
+        if (this.evaluationCache == null) {
+            return b.evaluate();
+        }
+        stats.evalCacheProbes++;
+        double cached = this.evaluationCache.probe(key);
+        if (!Double.isNaN(cached)) {
+            stats.evalCacheHits++;
+            return cached;
+        }
+        double value = b.evaluate();
+        this.evaluationCache.store(key, value);
+        return value;
+    }
+
+    // daemon threads, created on first use, so an agent that is dropped never keeps the JVM alive
+    private ExecutorService getPonderPool() {
+        if (this.ponderPool == null) {
+            this.ponderPool = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "othello-ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.ponderPool;
+    }
+
+    private ExecutorService getHelperPool() {
+        if (this.helperPool == null) {
+            this.helperPool = Executors.newFixedThreadPool(this.threads - 1, r -> {
+                Thread thread = new Thread(r, "othello-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.helperPool;
+    }
+
+    private ForkJoinPool getForkJoinPool() {
+        if (this.forkJoinPool == null) {
+            this.forkJoinPool = new ForkJoinPool(this.threads);
+        }
+        return this.forkJoinPool;
+    }
+
+    // lets the pool threads exit between games (e.g. in Tournament, where agents are made per game);
+    // the getters above recreate a pool if this agent plays again
+    private void shutdownPools() {
+        if (this.ponderPool != null) {
+            this.ponderPool.shutdown();
+            this.ponderPool = null;
+        }
+        if (this.helperPool != null) {
+            this.helperPool.shutdown();
+            this.helperPool = null;
+        }
+        if (this.forkJoinPool != null) {
+            this.forkJoinPool.shutdown();
+            this.forkJoinPool = null;
+        }
+    }
+
     @Override
     public OthelloNode makeRootNode(final GameView game) {
         // if you change OthelloNode's constructor, you will want to change this!
@@ -191,172 +676,838 @@ public class OthelloAgent
         return new OthelloNode(this.getMyPlayerType(), game, 0);
     }
 
-    public Node alphaBeta(Node n, double alpha, double beta, int maxDepth, TimeBudget t, SearchStats stats) {
+    // interior nodes are searched on a single SearchBoard with make/unmake; children are generated
+    // lazily in best-first order, so pruned siblings are never scored or built
+    public double alphaBeta(SearchBoard b, double alpha, double beta, int maxDepth, TimeBudget t, SearchStats stats) {
         stats.onNode();
-        if (t.timeUp()) {
-            timeExpired = true;
-            throw new TimeUp();
+        this.checkTime(t);
+        int remaining = maxDepth - b.getPly();
+        int hashMove = BitBoard.PASS;
+        final double alphaOrig = alpha;
+        final double betaOrig = beta;
+        final int s = this.symmetryOf(b.getMine(), b.getTheirs());
+        final long key = this.tableKey(b.getMine(), b.getTheirs(), b.isMaxToMove(), b.getHash(), s);
+        if (remaining > 0) {
+            long entry = this.table.probe(key);
+            stats.onTableProbe(entry, s);
+            if (TranspositionTable.isEntry(entry)) {
+                hashMove = tableMove(entry, s);
+                // YBWC keeps results independent of what other threads happened to store
+                if (this.searchMode != SearchMode.YBWC && TranspositionTable.depth(entry) >= remaining) {
+                    double stored = TranspositionTable.value(entry);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) {
+                        stats.onTableCutoff();
+                        return stored;
+                    } else if (bound == TranspositionTable.LOWER) {
+                        alpha = Math.max(alpha, stored);
+                    } else {
+                        beta = Math.min(beta, stored);
+                    }
+                    if (beta <= alpha) {
+                        stats.onTableCutoff();
+                        return stored;
+                    }
+                }
+            }
         }
-        if (n.isTerminal()) {
+        long moves = b.legalMoves();
+        if (moves == 0L && b.opponentMoves() == 0L) {
             stats.onTerminal();
-            n.setUtilityValue(n.getTerminalUtility());
-            return n;
+            return b.getTerminalUtility();
         }
-        if (n.getDepth() == maxDepth) {
+        if (remaining == 0) {
             stats.onHeuristic();
-            n.setUtilityValue(Heuristics.calculateHeuristicValue(n));
-            return n;
+            return this.evaluateLeaf(b, key, stats);
         }
-        if (n.getGameView().getCurrentPlayerType() == n.getMaxPlayerType()) {
-            double bestVal = Double.NEGATIVE_INFINITY;
-            Node bestNode = null;
-            Node bestChild = null;
-            List<Node> orderedChildren = MoveOrderer.orderChildren(n.getChildren());
-
-            for (Node child : orderedChildren) {
-                if (t.timeUp()) {
-                    timeExpired = true;
-                    throw new TimeUp();
+        if (this.probCut != null) {
+            double cut = this.probCut(b, alpha, beta, maxDepth, t, stats);
+            if (!Double.isNaN(cut)) {
+                stats.onProbCut();
+                return cut;
+            }
+        }
+        MoveList list = MoveOrderer.generate(b, moves, hashMove);
+        double bestVal;
+        int bestMove = BitBoard.PASS;
+        if (b.isMaxToMove()) {
+            bestVal = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < list.size(); i++) {
+                this.checkTime(t);
+                int move = MoveOrderer.pick(b, list, i, hashMove, remaining);
+                b.make(move);
+                double value;
+                if (i == 0 || this.searchMode == SearchMode.ALPHA_BETA) {
+                    value = alphaBeta(b, alpha, beta, maxDepth, t, stats);
+                } else {
+                    // null window: only asks whether this child beats alpha
+                    value = alphaBeta(b, alpha, Math.nextUp(alpha), maxDepth, t, stats);
+                    if (value > alpha && value < beta) {
+                        stats.onResearch();
+                        value = alphaBeta(b, alpha, beta, maxDepth, t, stats);
+                    }
                 }
-                Node best = alphaBeta(child, alpha, beta, maxDepth, t, stats);
-                double value = best.getUtilityValue();
+                b.unmake();
                 if (value > bestVal) {
                     bestVal = value;
-                    bestChild = child;
-                    bestNode = best;
+                    bestMove = move;
                 }
                 alpha = Math.max(alpha, bestVal);
                 if (beta <= alpha) {
+                    stats.onCutoff(i);
+                    MoveOrderer.onCutoff(b, move, remaining);
                     break;
                 }
-
             }
-            bestChild.setUtilityValue(bestVal);
-            return bestChild;
 
         } else {
-            double bestVal = Double.POSITIVE_INFINITY;
-            Node bestMinNode = null;
-            Node bestChild = null;
-            List<Node> orderedChildren = MoveOrderer.orderChildren(n.getChildren());
-            for (Node child : orderedChildren) {
-                if (t.timeUp()) {
-                    timeExpired = true;
-                    throw new TimeUp();
+            bestVal = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < list.size(); i++) {
+                this.checkTime(t);
+                int move = MoveOrderer.pick(b, list, i, hashMove, remaining);
+                b.make(move);
+                double value;
+                if (i == 0 || this.searchMode == SearchMode.ALPHA_BETA) {
+                    value = alphaBeta(b, alpha, beta, maxDepth, t, stats);
+                } else {
+                    // null window: only asks whether this child is below beta
+                    value = alphaBeta(b, Math.nextDown(beta), beta, maxDepth, t, stats);
+                    if (value < beta && value > alpha) {
+                        stats.onResearch();
+                        value = alphaBeta(b, alpha, beta, maxDepth, t, stats);
+                    }
                 }
-                Node best = alphaBeta(child, alpha, beta, maxDepth, t, stats);
-                double value = best.getUtilityValue();
-
+                b.unmake();
                 if (value < bestVal) {
                     bestVal = value;
-                    bestChild = child;
-                    bestMinNode = best;
+                    bestMove = move;
                 }
                 beta = Math.min(beta, bestVal);
                 if (beta <= alpha) {
+                    stats.onCutoff(i);
+                    MoveOrderer.onCutoff(b, move, remaining);
+                    break;
+                }
+            }
+        }
+        int bound = (bestVal <= alphaOrig) ? TranspositionTable.UPPER
+                : (bestVal >= betaOrig) ? TranspositionTable.LOWER
+                        : TranspositionTable.EXACT;
+        this.table.store(key, remaining, bound, bestVal, Symmetry.transformSquare(bestMove, s), s);
+        return bestVal;
+    }
+
+    // Multi-ProbCut: null-window searches of each shallow depth ProbCut lists for this node, asking
+    // whether the predicted deep value clears the window by the threshold. Returns the bound to fail
+    // with (fail hard, nothing is stored in the table), or NaN to search the node in full. The
+    // parameters are in the mover's point of view, so b changes sign at MIN nodes.
+    private double probCut(SearchBoard b, double alpha, double beta, int maxDepth, TimeBudget t,
+            SearchStats stats) {
+        int remaining = maxDepth - b.getPly();
+        ProbCut.Cut[] cuts = this.probCut.cuts(Long.bitCount(~(b.getMine() | b.getTheirs())), remaining);
+        double sign = b.isMaxToMove() ? 1.0 : -1.0;
+        double threshold = this.probCut.getThreshold();
+        for (ProbCut.Cut cut : cuts) {
+            int shallowDepth = b.getPly() + cut.shallow;
+            double margin = threshold * cut.sigma;
+            double high = (beta + margin - sign * cut.b) / cut.a;
+            if (high < 64.0 && alphaBeta(b, Math.nextDown(high), high, shallowDepth, t, stats) >= high) {
+                return beta;
+            }
+            double low = (alpha - margin - sign * cut.b) / cut.a;
+            if (low > -64.0 && alphaBeta(b, low, Math.nextUp(low), shallowDepth, t, stats) <= low) {
+                return alpha;
+            }
+        }
+        return Double.NaN;
+    }
+
+    // MAX loop of alphaBeta at the root (always our turn), keeping the square that produced bestVal.
+    // With a narrowed (aspiration) window the result is only a bound when it lands outside it.
+    public int searchRoot(SearchBoard root, double alpha, double beta, int maxDepth, TimeBudget t,
+            SearchStats stats) {
+        stats.onNode();
+        final double alphaOrig = alpha;
+        double bestVal = Double.NEGATIVE_INFINITY;
+        int bestMove = BitBoard.PASS;
+        final int s = this.symmetryOf(root.getMine(), root.getTheirs());
+        final long key = this.tableKey(root.getMine(), root.getTheirs(), root.isMaxToMove(), root.getHash(), s);
+        long entry = this.table.probe(key);
+        stats.onTableProbe(entry, s);
+        // previous iteration's best move goes first
+        int hashMove = tableMove(entry, s);
+        MoveList list = MoveOrderer.generate(root, root.legalMoves(), hashMove);
+        for (int i = 0; i < list.size(); i++) {
+            this.checkTime(t);
+            // past the soft target with the previous best move still on top: keep it and stop
+            if (i > 0 && stats.allowEarlyStop && this.timeManager.isBestMoveConfirmed(bestMove, bestVal)) {
+                stats.stoppedEarly = true;
+                throw new TimeUp();
+            }
+            int move = MoveOrderer.pick(root, list, i, hashMove, maxDepth - root.getPly());
+            root.make(move);
+            double value;
+            if (i == 0 || this.searchMode == SearchMode.ALPHA_BETA) {
+                value = alphaBeta(root, alpha, beta, maxDepth, t, stats);
+            } else {
+                value = alphaBeta(root, alpha, Math.nextUp(alpha), maxDepth, t, stats);
+                if (value > alpha && value < beta) {
+                    stats.onResearch();
+                    value = alphaBeta(root, alpha, beta, maxDepth, t, stats);
+                }
+            }
+            root.unmake();
+            if (value > bestVal) {
+                bestVal = value;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, bestVal);
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        int bound = (bestVal <= alphaOrig) ? TranspositionTable.UPPER
+                : (bestVal >= beta) ? TranspositionTable.LOWER
+                        : TranspositionTable.EXACT;
+        this.table.store(key, maxDepth - root.getPly(), bound, bestVal, Symmetry.transformSquare(bestMove, s), s);
+        stats.bestValue = bestVal;
+        return bestMove;
+    }
+
+    public int searchRoot(SearchBoard root, int maxDepth, TimeBudget t, SearchStats stats) {
+        return searchRoot(root, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, maxDepth, t, stats);
+    }
+
+    // state shared by the brothers of one YBWC split point; the window only ever narrows
+    final class SplitPoint {
+        final BitBoard position;
+        final boolean maxToMove;
+        final int maxDepth;
+        final TimeBudget budget;
+        double alpha;
+        double beta;
+        double bestVal;
+        int bestMove;
+        // ordering index of the brother that last narrowed the window (0 = eldest)
+        int ownerIndex = 0;
+        boolean cutoff = false;
+
+        SplitPoint(SearchBoard b, double alpha, double beta, int maxDepth, TimeBudget parent) {
+            this.position = new BitBoard(b.getMine(), b.getTheirs(), b.isMaxToMove(), BitBoard.PASS, 0);
+            this.maxToMove = b.isMaxToMove();
+            this.maxDepth = maxDepth;
+            this.budget = new TimeBudget(parent);
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        // window for brother index. A brother ordered before the current owner gets the bound
+        // widened by one ulp, so if it ties the owner it comes back exact and takes over: the
+        // lowest-index move of equal value wins no matter which brother finished first.
+        synchronized double[] windowFor(int index) {
+            if (index >= ownerIndex) {
+                return new double[] { alpha, beta };
+            }
+            return maxToMove
+                    ? new double[] { Math.nextDown(alpha), beta }
+                    : new double[] { alpha, Math.nextUp(beta) };
+        }
+
+        synchronized void report(int index, int move, double value, double[] window) {
+            if (maxToMove ? value > bestVal : value < bestVal) {
+                bestVal = value;
+                bestMove = move;
+            }
+            // a value on the wrong side of the brother's own window is only a bound
+            if (maxToMove && value > window[0] && (value > alpha || (value == alpha && index < ownerIndex))) {
+                alpha = value;
+                bestMove = move;
+                bestVal = value;
+                ownerIndex = index;
+            } else if (!maxToMove && value < window[1] && (value < beta || (value == beta && index < ownerIndex))) {
+                beta = value;
+                bestMove = move;
+                bestVal = value;
+                ownerIndex = index;
+            }
+            if (beta <= alpha && !cutoff) {
+                cutoff = true;
+                // the remaining brothers cannot change the result
+                budget.stop();
+            }
+        }
+    }
+
+    // one younger brother of a split point, searched on a board of its own
+    final class BrotherTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SplitPoint split;
+        private final int index;
+        private final int move;
+        final SearchStats stats = new SearchStats();
+        boolean aborted = false;
+
+        BrotherTask(SplitPoint split, int index, int move) {
+            this.split = split;
+            this.index = index;
+            this.move = move;
+        }
+
+        @Override
+        protected void compute() {
+            SearchBoard b = borrowBoard(split.position);
+            try {
+                // read the window only now, so brothers that start late see what earlier ones found
+                double[] window = split.windowFor(index);
+                b.make(move);
+                double value = ybwc(b, window[0], window[1], split.maxDepth, split.budget, stats);
+                split.report(index, move, value, window);
+            } catch (TimeUp e) {
+                aborted = true;
+            } finally {
+                spareBoards.offer(b);
+            }
+        }
+    }
+
+    private SearchBoard borrowBoard(BitBoard position) {
+        SearchBoard b = this.spareBoards.poll();
+        if (b == null) {
+            return new SearchBoard(position, this.patternEvaluator, this.heuristicWeights);
+        }
+        b.reset(position);
+        // killers and history from whatever the board searched before would make this brother's
+        // move order depend on which tasks it happened to run
+        b.getMoveHistory().clear();
+        return b;
+    }
+
+    // alphaBeta for SearchMode.YBWC: nodes with SPLIT_MIN_DEPTH or more plies left become split points
+    double ybwc(SearchBoard b, double alpha, double beta, int maxDepth, TimeBudget t, SearchStats stats) {
+        int remaining = maxDepth - b.getPly();
+        if (remaining < SPLIT_MIN_DEPTH) {
+            return alphaBeta(b, alpha, beta, maxDepth, t, stats);
+        }
+        stats.onNode();
+        this.checkTime(t);
+        long moves = b.legalMoves();
+        if (moves == 0L && b.opponentMoves() == 0L) {
+            stats.onTerminal();
+            return b.getTerminalUtility();
+        }
+        return this.split(b, alpha, beta, maxDepth, t, stats, false, BitBoard.PASS).bestVal;
+    }
+
+    // Young Brothers Wait: the eldest child is searched on this thread first, then the younger
+    // brothers are forked together with the window it left. A brother that fails high stops the
+    // others through the split point's budget. Inner split points take their hash move from the
+    // table; the root takes previousBest instead, since other threads write the table in no fixed
+    // order and the root's order decides between moves of equal value.
+    private SplitPoint split(SearchBoard b, double alpha, double beta, int maxDepth, TimeBudget t,
+            SearchStats stats, boolean root, int previousBest) {
+        int remaining = maxDepth - b.getPly();
+        final int s = this.symmetryOf(b.getMine(), b.getTheirs());
+        final long key = this.tableKey(b.getMine(), b.getTheirs(), b.isMaxToMove(), b.getHash(), s);
+        long entry = this.table.probe(key);
+        stats.onTableProbe(entry, s);
+        int hashMove = root ? previousBest : tableMove(entry, s);
+        MoveList list = MoveOrderer.generate(b, b.legalMoves(), hashMove);
+
+        // order every brother up front, on this thread, before any of them is forked
+        int[] order = new int[list.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = MoveOrderer.pick(b, list, i, hashMove, remaining);
+        }
+
+        SplitPoint sp = new SplitPoint(b, alpha, beta, maxDepth - b.getPly(), t);
+        b.make(order[0]);
+        double eldest = ybwc(b, alpha, beta, maxDepth, t, stats);
+        b.unmake();
+        sp.bestVal = eldest;
+        sp.bestMove = order[0];
+        if (sp.maxToMove) {
+            sp.alpha = Math.max(alpha, eldest);
+        } else {
+            sp.beta = Math.min(beta, eldest);
+        }
+        sp.cutoff = sp.beta <= sp.alpha;
+
+        if (!sp.cutoff && order.length > 1) {
+            List<BrotherTask> brothers = new ArrayList<BrotherTask>(order.length - 1);
+            for (int i = 1; i < order.length; i++) {
+                brothers.add(new BrotherTask(sp, i, order[i]));
+            }
+            ForkJoinTask.invokeAll(brothers);
+            boolean aborted = false;
+            for (BrotherTask brother : brothers) {
+                stats.merge(brother.stats);
+                aborted |= brother.aborted;
+            }
+            // an abort without our own cutoff came from the deadline or an enclosing split point
+            if (aborted && !sp.cutoff) {
+                this.checkTime(t);
+                throw new TimeUp();
+            }
+        }
+        if (sp.cutoff) {
+            stats.onCutoff(sp.ownerIndex);
+            MoveOrderer.onCutoff(b, sp.bestMove, remaining);
+        }
+        int bound = (sp.bestVal <= alpha) ? TranspositionTable.UPPER
+                : (sp.bestVal >= beta) ? TranspositionTable.LOWER
+                        : TranspositionTable.EXACT;
+        this.table.store(key, remaining, bound, sp.bestVal, Symmetry.transformSquare(sp.bestMove, s), s);
+        return sp;
+    }
+
+    // searchRoot for SearchMode.YBWC, trying previousBest (the last completed iteration's best move,
+    // or PASS) first; must run inside getForkJoinPool()
+    private int searchRootParallel(SearchBoard root, int maxDepth, int previousBest, TimeBudget t,
+            SearchStats stats) {
+        stats.onNode();
+        SplitPoint sp = this.split(root, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, maxDepth, t, stats,
+                true, previousBest);
+        stats.bestValue = sp.bestVal;
+        return sp.bestMove;
+    }
+
+    // searchRoot inside a window around the previous depth's score, widening and re-searching
+    // whichever side fails until the score lands inside the window
+    private int aspirationSearch(SearchBoard root, BitBoard start, double previousScore, int maxDepth,
+            TimeBudget t, SearchStats stats) {
+        double delta = ASPIRATION_DELTA;
+        double alpha = previousScore - delta;
+        double beta = previousScore + delta;
+        while (true) {
+            root.reset(start);
+            int bestMove = searchRoot(root, alpha, beta, maxDepth, t, stats);
+            double score = stats.bestValue;
+            if (score <= alpha) {
+                stats.onAspirationFail();
+                delta *= 2;
+                alpha = (score - delta < -64.0) ? Double.NEGATIVE_INFINITY : score - delta;
+            } else if (score >= beta) {
+                stats.onAspirationFail();
+                delta *= 2;
+                beta = (score + delta > 64.0) ? Double.POSITIVE_INFINITY : score + delta;
+            } else {
+                return bestMove;
+            }
+        }
+    }
+
+    // Lazy SMP helper: the main thread's iterative deepening without the time prediction, on its own
+    // board and killers/history. Odd helpers start one ply deeper so the threads spread over two
+    // depths and fill the table for each other instead of all searching the same tree in lockstep.
+    private SearchResult helperSearch(BitBoard root, int helperIndex, int startDepth, TimeBudget t) {
+        SearchBoard board = new SearchBoard(root, this.patternEvaluator, this.heuristicWeights);
+        SearchResult result = new SearchResult();
+        boolean havePreviousScore = false;
+        for (int depth = startDepth + (helperIndex & 1); depth < 60; depth++) {
+            SearchStats stats = new SearchStats();
+            try {
+                int bestMoveThisIteration;
+                if (this.searchMode == SearchMode.PVS_ASPIRATION && havePreviousScore) {
+                    bestMoveThisIteration = aspirationSearch(board, root, result.value, depth, t, stats);
+                } else {
+                    board.reset(root);
+                    bestMoveThisIteration = searchRoot(board, depth, t, stats);
+                }
+                result.onDepthCompleted(depth, bestMoveThisIteration, stats.bestValue);
+                havePreviousScore = true;
+                if (stats.isProven()) {
                     break;
                 }
+            } catch (TimeUp e) {
+                break;
+            } finally {
+                result.nodes += stats.nodesThisDepth;
+            }
+        }
+        return result;
+    }
 
+    private List<Future<SearchResult>> startHelpers(BitBoard root, int startDepth, TimeBudget t) {
+        List<Future<SearchResult>> helpers = new ArrayList<Future<SearchResult>>(this.threads - 1);
+        for (int i = 1; i < this.threads; i++) {
+            final int helperIndex = i;
+            helpers.add(this.getHelperPool().submit(() -> helperSearch(root, helperIndex, startDepth, t)));
+        }
+        return helpers;
+    }
+
+    // stops the helpers and returns the deepest result among them and the main thread (main wins ties);
+    // the helpers' lead and nodes go into totals unless it is null
+    private SearchResult joinHelpers(List<Future<SearchResult>> helpers, SearchResult main, TimeBudget t,
+            SearchStats totals) {
+        t.stop();
+        SearchResult best = main;
+        long helperNodes = 0;
+        for (Future<SearchResult> helper : helpers) {
+            try {
+                SearchResult r = helper.get();
+                helperNodes += r.nodes;
+                if (r.depth > best.depth) {
+                    best = r;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("Warning: helper search failed: " + e.getCause());
+            }
+        }
+        this.searchedNodes += helperNodes;
+        if (totals != null) {
+            totals.helperLead = best.depth - main.depth;
+            totals.helperNodes = helperNodes;
+        }
+        if (this.verbose) {
+            System.out.println("SMP threads: " + this.threads +
+                    " main depth: " + main.depth +
+                    " reached depth: " + best.depth +
+                    " helper lead: " + (best.depth - main.depth) +
+                    " nodes: " + (main.nodes + helperNodes));
+        }
+        return best;
+    }
+
+    // exact solve of the root (always our move), or PASS if it did not finish within its share of t
+    private int solveEndgame(BitBoard root, long availableMs, TimeBudget t) {
+        final long solveDeadline = System.nanoTime() + (long) (ENDGAME_TIME_FRACTION * availableMs * 1_000_000L);
+        long t0 = System.nanoTime();
+        try {
+            int move = this.endgameSolver.solveRoot(root.getMine(), root.getTheirs(),
+                    () -> t.timeUp() || System.nanoTime() >= solveDeadline);
+            if (this.verbose) {
+                System.out.println("Solved endgame: value " + this.endgameSolver.getValue() +
+                        " nodes: " + this.endgameSolver.getNodes() +
+                        " time: " + (System.nanoTime() - t0) / 1_000_000L + "ms");
+            }
+            return move;
+        } catch (EndgameSolver.Aborted e) {
+            if (this.verbose) {
+                System.out.println("Endgame solve aborted after " + this.endgameSolver.getNodes() + " nodes");
             }
-            bestChild.setUtilityValue(bestVal);
-            n.setUtilityValue(bestVal);
-            return bestChild;
+            return BitBoard.PASS;
         }
     }
 
+    // iterative deepening to exactly maxDepth with no time limit, for offline tools such as
+    // OpeningBookBuilder; root must be MAX to move and have a legal move
+    public int searchFixedDepth(BitBoard root, int maxDepth) {
+        TimeBudget t = new TimeBudget(0L, Long.MAX_VALUE / 2_000_000L);
+        SearchBoard board = new SearchBoard(root, this.patternEvaluator, this.heuristicWeights);
+        this.table.newSearch();
+        int bestMove = BitBoard.PASS;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            SearchStats stats = new SearchStats();
+            board.reset(root);
+            bestMove = searchRoot(board, depth, t, stats);
+            this.lastSearchValue = stats.bestValue;
+        }
+        return bestMove;
+    }
+
+    // one full-window alphaBeta of position to maxDepth with no time limit, from an empty table and
+    // fresh ordering memory, so repeated calls do the same work (OthelloBenchmarks)
+    public double searchValue(BitBoard position, int maxDepth) {
+        TimeBudget t = new TimeBudget(0L, Long.MAX_VALUE / 2_000_000L);
+        this.table.clear();
+        SearchBoard board = new SearchBoard(position, this.patternEvaluator, this.heuristicWeights);
+        return alphaBeta(board, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, maxDepth, t, new SearchStats());
+    }
+
     @Override
     public Node treeSearch(Node n) {
-        final long totalMoveMs = this.getMaxThinkingTimeInMS();
-        final long hardBufferMs = 25;
+        OthelloNode rootNode = (n instanceof OthelloNode) ? (OthelloNode) n : this.makeRootNode(n.getGameView());
+        BitBoard root = BitBoard.fromGameView(n.getGameView(), n.getMaxPlayerType());
+        if (root.legalMoves() == 0L) {
+            // No valid moves available - this should be a terminal state
+            // Return the root node, but this indicates a game-ending condition
+            return n;
+        }
+
+        this.timeManager.startMove(Long.bitCount(root.legalMoves()),
+                Long.bitCount(~(root.getMine() | root.getTheirs())));
+        try {
+            // only place the search result turns back into a Coordinate/Node
+            return rootNode.getChild(BitBoard.toCoordinate(this.searchBestMove(root)));
+        } finally {
+            this.timeManager.endMove();
+        }
+    }
 
-        TimeBudget t = new TimeBudget(totalMoveMs, totalMoveMs - hardBufferMs);
+    // best square for the root (MAX to move, at least one legal move) within the time manager's limits
+    private int searchBestMove(BitBoard root) {
+        long moveStart = System.nanoTime();
+        int empties = Long.bitCount(~(root.getMine() | root.getTheirs()));
+        if (this.timeManager.isForced()) {
+            if (this.telemetry != null) {
+                this.recordMove(empties, SearchTelemetry.Source.FORCED, 0, 0, 0L, moveStart, null);
+            }
+            return Long.numberOfTrailingZeros(root.legalMoves());
+        }
+        TimeBudget t = new TimeBudget(this.getMaxThinkingTimeInMS(), this.timeManager.getHardRemainingMs());
+
+        if (empties <= ENDGAME_EMPTIES) {
+            int solved = this.solveEndgame(root, this.timeManager.getHardRemainingMs(), t);
+            if (solved != BitBoard.PASS) {
+                if (this.telemetry != null) {
+                    this.recordMove(empties, SearchTelemetry.Source.SOLVED, empties, 1,
+                            this.endgameSolver.getNodes(), moveStart, null);
+                }
+                return solved;
+            }
+        }
 
-        Node bestMoveSoFar = null;
-        int lastCompletedDepth = 0;
+        long searchStart = System.nanoTime();
+        // the move's totals over all iterations, only kept for telemetry
+        SearchStats moveTotals = (this.telemetry != null) ? new SearchStats() : null;
+        int iterations = 0;
+        SearchBoard board = new SearchBoard(root, this.patternEvaluator, this.heuristicWeights);
+        int bestMoveSoFar = BitBoard.PASS;
 
         timeExpired = false;
+        this.table.newSearch();
+
+        int startDepth = MIN_START_DEPTH;
+        boolean havePreviousScore = false;
+        double previousScore = 0.0;
+        SearchResult mainResult = new SearchResult();
+
+        // a ponder hit already searched this root: resume after its deepest completed depth
+        SearchResult pondered = this.ponderResult;
+        this.ponderResult = null;
+        if (pondered != null) {
+            startDepth = pondered.depth + 1;
+            bestMoveSoFar = pondered.move;
+            previousScore = pondered.value;
+            havePreviousScore = true;
+            mainResult.onDepthCompleted(pondered.depth, pondered.move, pondered.value);
+            this.timeManager.seed(pondered.move, pondered.value);
+        } else {
+            // an exact entry for this root means the last search already went this deep below it
+            // (normally because the opponent played the reply on our principal variation)
+            int s = this.symmetryOf(root.getMine(), root.getTheirs());
+            long entry = this.probeTable(root, s);
+            int reusedMove = tableMove(entry, s);
+            if (reusedMove != BitBoard.PASS
+                    && TranspositionTable.bound(entry) == TranspositionTable.EXACT
+                    && TranspositionTable.depth(entry) >= startDepth
+                    && (root.legalMoves() & (1L << reusedMove)) != 0L) {
+                int reusedDepth = TranspositionTable.depth(entry);
+                startDepth = reusedDepth + 1;
+                bestMoveSoFar = reusedMove;
+                previousScore = TranspositionTable.value(entry);
+                havePreviousScore = true;
+                mainResult.onDepthCompleted(reusedDepth, reusedMove, previousScore);
+                this.timeManager.seed(reusedMove, previousScore);
+                if (this.verbose) {
+                    System.out.println("Reusing depth " + reusedDepth + " from the previous search" +
+                            (this.isOnPreviousPrincipalVariation(root) ? " (principal variation)" : ""));
+                }
+            }
+        }
 
-        long nodesAtPreviousDepth = 550;
-        double avgNodesPerSecond = 0.0;
-
-        int startDepth = 5;
+        // YBWC uses the threads itself; every other mode runs them as Lazy SMP helpers
+        List<Future<SearchResult>> helpers = (this.threads > 1 && this.searchMode != SearchMode.YBWC)
+                ? this.startHelpers(root, startDepth, t)
+                : new ArrayList<Future<SearchResult>>(0);
 
         for (int depth = startDepth; depth < 60; depth++) {
             long t0 = System.nanoTime();
             SearchStats stats = new SearchStats();
+            stats.allowEarlyStop = true;
             try {
-                Node bestMoveThisIteration = alphaBeta(
-                        n,
-                        Double.NEGATIVE_INFINITY,
-                        Double.POSITIVE_INFINITY,
-                        depth,
-                        t,
-                        stats);
+                int bestMoveThisIteration;
+                if (this.searchMode == SearchMode.YBWC) {
+                    final int iterationDepth = depth;
+                    final int previousBest = bestMoveSoFar;
+                    board.reset(root);
+                    // the root is ordered from previousBest and this board's ordering memory, so
+                    // start that memory empty rather than from the last iteration's racing threads
+                    board.getMoveHistory().clear();
+                    bestMoveThisIteration = this.getForkJoinPool().invoke(ForkJoinTask.adapt(
+                            () -> searchRootParallel(board, iterationDepth, previousBest, t, stats)));
+                } else if (this.searchMode == SearchMode.PVS_ASPIRATION && havePreviousScore) {
+                    bestMoveThisIteration = aspirationSearch(board, root, previousScore, depth, t, stats);
+                } else {
+                    // a TimeUp can leave moves applied, so always start from a clean root
+                    board.reset(root);
+                    bestMoveThisIteration = searchRoot(board, depth, t, stats);
+                }
 
                 bestMoveSoFar = bestMoveThisIteration;
-                lastCompletedDepth = depth;
-                if (stats.heuristicUsed == 0) {
+                previousScore = stats.bestValue;
+                havePreviousScore = true;
+                mainResult.onDepthCompleted(depth, bestMoveThisIteration, stats.bestValue);
+                iterations++;
+                if (stats.isProven()) {
                     break;
                 }
 
             } catch (TimeUp e) {
+                if (stats.stoppedEarly && this.verbose) {
+                    System.out.println("Stopped depth " + depth + " early: best move confirmed");
+                }
                 break;
+            } finally {
+                mainResult.nodes += stats.nodesThisDepth;
+                if (moveTotals != null) {
+                    moveTotals.merge(stats);
+                }
             }
 
-            long elapsedMs = Math.max(1L, (System.nanoTime() - t0) / 1_000_000L);
+            long elapsedNanos = System.nanoTime() - t0;
+            long elapsedMs = Math.max(1L, elapsedNanos / 1_000_000L);
             if (timeExpired) {
                 break;
             }
             stats.finishDepth(elapsedMs);
+            this.timeManager.onIterationComplete(bestMoveSoFar, previousScore, elapsedNanos);
 
-            long nodesThisDepth = stats.nodesThisDepth;
-            avgNodesPerSecond = stats.emaNps;
-
-            long remainingMs = t.remainingTimeHard();
-
-            System.out.println("Completed depth " + depth +
-                    " nodes: " + nodesThisDepth +
+            if (this.verbose) {
+                System.out.println("Completed depth " + depth +
+                    " nodes: " + stats.nodesThisDepth +
                     " time: " + elapsedMs + "ms" +
-                    " rem: " + remainingMs + "ms" +
-                    " nps: " + (int) avgNodesPerSecond +
+                    " rem: " + t.remainingTimeHard() + "ms" +
+                    " soft: " + this.timeManager.getSoftTargetMs() + "ms" +
+                    " nps: " + (int) stats.emaNps +
                     " heuristics: " + stats.heuristicUsed +
-                    " terminals: " + stats.terminalUsed);
-
-            stats.resetHeuristic();
-            stats.resetTerminal();
-            boolean canContinue = canAffordNextDepth(
-                    lastCompletedDepth,
-                    remainingMs,
-                    hardBufferMs,
-                    (int) nodesThisDepth,
-                    (int) nodesAtPreviousDepth,
-                    avgNodesPerSecond);
-
-            if (!canContinue) {
-                break;
+                    " terminals: " + stats.terminalUsed +
+                    " tt hit%: " + (int) (100 * stats.tableHitRate()) +
+                    " folded%: " + (int) (100 * stats.foldedHitRate()) +
+                    " eval cache hit%: " + (int) (100 * stats.evalCacheHitRate()) +
+                    " tt collisions: " + stats.tableCollisions +
+                    " probcuts: " + stats.probCuts +
+                    " researches: " + stats.researches +
+                    " aspiration fails: " + stats.aspirationFails +
+                        " first-move cutoff%: " + (int) (100 * stats.firstMoveCutoffRate()));
             }
 
-            nodesAtPreviousDepth = nodesThisDepth;
+            if (!this.timeManager.canStartNextIteration()) {
+                break;
+            }
+        }
+        int reachedDepth = mainResult.depth;
+        long nodesBefore = this.searchedNodes;
+        if (moveTotals != null) {
+            moveTotals.mainDepth = mainResult.depth;
         }
-        if (bestMoveSoFar == null) {
-            List<Node> kids = n.getChildren();
-            if (kids == null || kids.isEmpty()) {
-                // No valid moves available - this should be a terminal state
-                // Return the root node, but this indicates a game-ending condition
-                return n;
+        if (!helpers.isEmpty()) {
+            SearchResult best = this.joinHelpers(helpers, mainResult, t, moveTotals);
+            if (best.depth > 0) {
+                bestMoveSoFar = best.move;
             }
-            // Return the first child (which represents a move) after ordering
-            return MoveOrderer.orderChildren(kids).get(0);
+            reachedDepth = best.depth;
         }
+        this.searchedMoves++;
+        this.searchedDepth += reachedDepth;
+        this.searchedNodes += mainResult.nodes;
+        this.searchNanos += System.nanoTime() - searchStart;
+        if (this.telemetry != null) {
+            // helpers' nodes were added to searchedNodes by joinHelpers
+            this.recordMove(empties, SearchTelemetry.Source.SEARCH, reachedDepth, iterations,
+                    this.searchedNodes - nodesBefore, moveStart, moveTotals);
+        }
+        if (bestMoveSoFar == BitBoard.PASS) {
+            // Return the first move after ordering
+            bestMoveSoFar = MoveOrderer.orderMoves(root).get(0).getLastMove();
+        }
+        this.previousRoot = root;
+        this.principalVariation = this.extractPrincipalVariation(root, bestMoveSoFar, mainResult.depth);
         return bestMoveSoFar;
     }
 
+    // one telemetry line for the move being played; totals is null for moves that were not searched
+    private void recordMove(int empties, SearchTelemetry.Source source, int depth, int iterations, long nodes,
+            long moveStart, SearchStats totals) {
+        long probes = (totals != null) ? totals.tableHits + totals.tableMisses + totals.tableCollisions : 0L;
+        this.telemetry.record(empties, source, depth, iterations, nodes, System.nanoTime() - moveStart,
+                (source == SearchTelemetry.Source.SEARCH) ? this.timeManager.getSoftTargetMs() : 0L,
+                (source == SearchTelemetry.Source.BOOK) ? 0L : this.timeManager.getHardLimitMs(),
+                (totals != null) ? totals.cutoffs : 0L,
+                (totals != null) ? totals.firstMoveCutoffs : 0L,
+                probes,
+                (totals != null) ? totals.tableHits : 0L,
+                (totals != null) ? totals.probCuts : 0L,
+                (source == SearchTelemetry.Source.SEARCH) ? this.timeManager.getBestMoveChanges() : 0,
+                (totals != null) ? totals.mainDepth : depth,
+                (totals != null) ? totals.helperLead : 0,
+                (totals != null) ? totals.helperNodes : 0L);
+    }
+
+    // follows table moves from root (starting with firstMove) for at most maxLength plies
+    private int[] extractPrincipalVariation(BitBoard root, int firstMove, int maxLength) {
+        int[] line = new int[Math.max(1, maxLength)];
+        int length = 0;
+        BitBoard position = root;
+        int move = firstMove;
+        while (length < line.length) {
+            long moves = position.legalMoves();
+            if (moves == 0L ? move != BitBoard.PASS : (move == BitBoard.PASS || (moves & (1L << move)) == 0L)) {
+                break;
+            }
+            line[length++] = move;
+            position = position.play(move);
+            int s = this.symmetryOf(position.getMine(), position.getTheirs());
+            long entry = this.probeTable(position, s);
+            if (!TranspositionTable.isEntry(entry)) {
+                break;
+            }
+            move = tableMove(entry, s);
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    // true if root is two plies down the principal variation of our previous search
+    private boolean isOnPreviousPrincipalVariation(BitBoard root) {
+        if (this.previousRoot == null || this.principalVariation.length < 2) {
+            return false;
+        }
+        BitBoard expected = this.previousRoot.play(this.principalVariation[0]).play(this.principalVariation[1]);
+        return expected.getMine() == root.getMine()
+                && expected.getTheirs() == root.getTheirs()
+                && expected.isMaxToMove() == root.isMaxToMove();
+    }
+
+    public final int[] getPrincipalVariation() {
+        return this.principalVariation.clone();
+    }
+
     @Override
     public Coordinate chooseCoordinateToPlaceTile(final GameView game) {
         // TODO: this move will be called once per turn
         // you may want to use this method to add to data structures and whatnot
         // that your algorithm finds useful
 
+        BitBoard position = BitBoard.fromGameView(game, this.getMyPlayerType());
+        // the ponder result is only kept if the opponent played the reply it searched
+        this.ponderResult = this.stopPondering(position);
+
+        Coordinate move = this.chooseMove(game, position);
+        if (this.pondering && move != null) {
+            this.startPondering(position.play(BitBoard.toSquare(move)));
+        }
+        return move;
+    }
+
+    private Coordinate chooseMove(final GameView game, final BitBoard position) {
+        // book positions are answered without searching
+        long moveStart = System.nanoTime();
+        int bookMove = this.openingBook.probe(position.getMover(), position.getWaiter());
+        if (bookMove != BitBoard.PASS && (position.legalMoves() & (1L << bookMove)) != 0L) {
+            if (this.telemetry != null) {
+                this.recordMove(Long.bitCount(~(position.getMine() | position.getTheirs())),
+                        SearchTelemetry.Source.BOOK, 0, 0, 0L, moveStart, null);
+            }
+            if (this.verbose) {
+                System.out.println("Book move: " + bookMove);
+            }
+            return BitBoard.toCoordinate(bookMove);
+        }
+
         // make the root node
         Node node = this.makeRootNode(game);
 
@@ -382,6 +1533,66 @@ public class OthelloAgent
 
     @Override
     public void afterGameEnds(final GameView game) {
+        this.stopPondering(null);
+        this.ponderResult = null;
+        this.shutdownPools();
+        if (this.telemetry != null) {
+            this.telemetry.flush();
+        }
+    }
+
+    // Ponders afterOurMove (opponent to move): predicts the reply from the table, or from static
+    // ordering if the table has nothing, and searches the position after it in the background
+    private void startPondering(BitBoard afterOurMove) {
+        long replies = afterOurMove.legalMoves();
+        int reply = BitBoard.PASS;
+        if (replies != 0L) {
+            int s = this.symmetryOf(afterOurMove.getMine(), afterOurMove.getTheirs());
+            reply = tableMove(this.probeTable(afterOurMove, s), s);
+            if (reply == BitBoard.PASS || (replies & (1L << reply)) == 0L) {
+                reply = MoveOrderer.orderMoves(afterOurMove).get(0).getLastMove();
+            }
+        }
+        BitBoard predicted = afterOurMove.play(reply);
+        if (predicted.legalMoves() == 0L
+                || Long.bitCount(~(predicted.getMine() | predicted.getTheirs())) <= ENDGAME_EMPTIES) {
+            // nothing to search, or the endgame solver will answer it quickly anyway
+            return;
+        }
+        TimeBudget budget = new TimeBudget(0L, Long.MAX_VALUE / 2_000_000L);
+        this.ponder = new Ponder(predicted, budget,
+                this.getPonderPool().submit(() -> helperSearch(predicted, 0, PONDER_START_DEPTH, budget)));
+    }
+
+    // stops the running ponder, if any, and returns its result when root is the position it searched
+    private SearchResult stopPondering(BitBoard root) {
+        Ponder p = this.ponder;
+        if (p == null) {
+            return null;
+        }
+        this.ponder = null;
+        p.budget.stop();
+        SearchResult result;
+        try {
+            result = p.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Warning: ponder search failed: " + e.getCause());
+            return null;
+        }
+        if (root == null) {
+            return null;
+        }
+        boolean hit = p.position.getMine() == root.getMine()
+                && p.position.getTheirs() == root.getTheirs()
+                && p.position.isMaxToMove() == root.isMaxToMove();
+        if (this.verbose) {
+            System.out.println("Ponder " + (hit ? "hit" : "miss") + ": depth " + result.depth +
+                    " nodes: " + result.nodes);
+        }
+        return (hit && result.depth > 0) ? result : null;
     }
 
     private static void ensureTurn(Game g, PlayerType pt) {
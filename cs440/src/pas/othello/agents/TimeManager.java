@@ -0,0 +1,171 @@
+package src.pas.othello.agents;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Decides how long OthelloAgent searches each move.
+ *
+ * Every move gets a hard limit (the per-move thinking time minus a safety buffer, and never more
+ * than a fair share of the game clock when one is set) that the search never passes, and a soft
+ * target inside it. The soft target starts at BASE_FRACTION of the hard limit and grows while
+ * the best move keeps changing between iterations or the score drops. A new iteration only
+ * starts if it is predicted to finish before the hard limit. An iteration past the soft target
+ * is cut short once its first move has confirmed the previous best move.
+ *
+ * Timing is per move, from startMove to endMove, and is also accumulated over the game.
+ */
+public final class TimeManager
+        extends Object {
+
+    // share of the hard limit a stable position is given
+    public static final double BASE_FRACTION = 0.5;
+    // instability can stretch the soft target to at most (1 + MAX_INSTABILITY) times the base,
+    // i.e. all the way to the hard limit
+    public static final double MAX_INSTABILITY = 1.0;
+    // how much of the instability from earlier iterations carries over to the next one
+    public static final double INSTABILITY_DECAY = 0.5;
+    // a score drop larger than this (in discs) counts as half a best-move change
+    public static final double SCORE_DROP = 2.0;
+    // bounds on the predicted time ratio between consecutive iterations
+    public static final double MIN_GROWTH = 1.5;
+    public static final double MAX_GROWTH = 8.0;
+    public static final double DEFAULT_GROWTH = 4.0;
+
+    private final long moveLimitMs;
+    private final long safetyBufferMs;
+    // total thinking time for the whole game, or 0 for per-move limits only
+    private final long gameTimeMs;
+
+    // game totals
+    private long gameUsedNanos = 0L;
+    private int movesPlayed = 0;
+
+    // current move
+    private long startNanos = 0L;
+    private long hardNanos = 0L;
+    private long baseNanos = 0L;
+    private boolean forced = false;
+    private int lastBestMove = BitBoard.PASS;
+    private double lastValue = 0.0;
+    private double instability = 0.0;
+    private long lastIterationNanos = 0L;
+    private double growth = DEFAULT_GROWTH;
+    private int bestMoveChanges = 0;
+
+    public TimeManager(final long moveLimitMs, final long safetyBufferMs, final long gameTimeMs) {
+        this.moveLimitMs = moveLimitMs;
+        this.safetyBufferMs = safetyBufferMs;
+        this.gameTimeMs = gameTimeMs;
+    }
+
+    public final long getGameUsedMs() {
+        return this.gameUsedNanos / 1_000_000L;
+    }
+
+    public final int getMovesPlayed() {
+        return this.movesPlayed;
+    }
+
+    public final int getBestMoveChanges() {
+        return this.bestMoveChanges;
+    }
+
+    // empties is used to share out the game clock over the moves we still have to make
+    public void startMove(final int legalMoves, final int empties) {
+        this.startNanos = System.nanoTime();
+        long hardMs = this.moveLimitMs - this.safetyBufferMs;
+        if (this.gameTimeMs > 0L) {
+            long remainingMs = this.gameTimeMs - this.getGameUsedMs() - this.safetyBufferMs;
+            int movesLeft = Math.max(1, (empties + 1) / 2);
+            // a fair share, but allow up to twice that when it is available
+            hardMs = Math.min(hardMs, Math.min(remainingMs, 2L * remainingMs / movesLeft));
+        }
+        hardMs = Math.max(1L, hardMs);
+        this.hardNanos = this.startNanos + hardMs * 1_000_000L;
+        this.baseNanos = (long) (BASE_FRACTION * hardMs * 1_000_000L);
+        this.forced = legalMoves == 1;
+        this.lastBestMove = BitBoard.PASS;
+        this.lastValue = 0.0;
+        this.instability = 0.0;
+        this.lastIterationNanos = 0L;
+        this.growth = DEFAULT_GROWTH;
+        this.bestMoveChanges = 0;
+    }
+
+    public void endMove() {
+        this.gameUsedNanos += System.nanoTime() - this.startNanos;
+        this.movesPlayed++;
+    }
+
+    // only one legal move: nothing to search
+    public final boolean isForced() {
+        return this.forced;
+    }
+
+    // milliseconds from now until the hard limit, for the move's TimeBudget
+    public long getHardRemainingMs() {
+        return Math.max(0L, (this.hardNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    // the current move's hard limit, from its start
+    public long getHardLimitMs() {
+        return (this.hardNanos - this.startNanos) / 1_000_000L;
+    }
+
+    public long getSoftTargetMs() {
+        return this.softNanos() / 1_000_000L;
+    }
+
+    private long softNanos() {
+        return (long) (this.baseNanos * (1.0 + Math.min(MAX_INSTABILITY, this.instability)));
+    }
+
+    // a result carried over from an earlier search (a ponder hit or a reused table entry): it counts
+    // as the previous iteration's best move and value, but it took no time here, so the first
+    // iteration searched after it sets the timing instead of being compared against it
+    public void seed(final int bestMove, final double value) {
+        this.lastBestMove = bestMove;
+        this.lastValue = value;
+    }
+
+    public void onIterationComplete(final int bestMove, final double value, final long elapsedNanos) {
+        boolean changed = this.lastBestMove != BitBoard.PASS && bestMove != this.lastBestMove;
+        boolean dropped = this.lastBestMove != BitBoard.PASS && value < this.lastValue - SCORE_DROP;
+        if (changed) {
+            this.bestMoveChanges++;
+        }
+        this.instability = INSTABILITY_DECAY * this.instability
+                + (changed ? 1.0 : 0.0)
+                + (dropped ? 0.5 : 0.0);
+        if (this.lastIterationNanos > 0L) {
+            double ratio = (double) elapsedNanos / this.lastIterationNanos;
+            this.growth = Math.max(MIN_GROWTH, Math.min(MAX_GROWTH, ratio));
+        }
+        this.lastIterationNanos = Math.max(1L, elapsedNanos);
+        this.lastBestMove = bestMove;
+        this.lastValue = value;
+    }
+
+    // start another iteration only before the soft target, and only if it should end before the hard limit
+    public boolean canStartNextIteration() {
+        long elapsed = System.nanoTime() - this.startNanos;
+        if (elapsed >= this.softNanos()) {
+            return false;
+        }
+        double predicted = this.lastIterationNanos * this.growth;
+        return this.startNanos + elapsed + predicted < this.hardNanos;
+    }
+
+    // true once the soft target has passed and the running iteration's best move so far is the
+    // previous iteration's best move, at a score that has not dropped
+    public boolean isBestMoveConfirmed(final int bestMove, final double value) {
+        return this.lastBestMove != BitBoard.PASS
+                && bestMove == this.lastBestMove
+                && value >= this.lastValue - SCORE_DROP
+                && System.nanoTime() - this.startNanos >= this.softNanos();
+    }
+
+}
@@ -0,0 +1,167 @@
+package src.pas.othello.benchmark;
+
+// SYSTEM IMPORTS
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Minimal measurement loop for OthelloBenchmarks, in the manner of JMH's throughput mode: a number
+ * of warm-up iterations, then timed iterations of a fixed wall-clock length, each calling the
+ * operation back to back over the positions of a corpus. The operation returns a value derived from
+ * its result that is folded into a checksum, so the JIT cannot drop the work (JMH's Blackhole).
+ *
+ * Allocation is read from the measuring thread's allocated-bytes counter
+ * (com.sun.management.ThreadMXBean, as JMH's gc profiler does), so it counts every byte the
+ * operation allocated, including garbage that never survives a collection. The clock is read after
+ * every operation, which adds a few tens of nanoseconds to each; fine for the operations measured
+ * here, all of which take hundreds of nanoseconds or more.
+ */
+public final class Benchmark
+        extends Object {
+
+    // the operation under test, applied to the index-th position of a corpus
+    public interface Operation {
+        long run(int index);
+    }
+
+    // per-operation averages over the timed iterations
+    public static final class Result
+            extends Object {
+        public final String name;
+        public final String corpus;
+        public final long operations;
+        public final double nanosPerOp;
+        // half-width of the 95% interval of nanosPerOp across iterations
+        public final double nanosError;
+        // NaN if the JVM cannot count allocated bytes
+        public final double bytesPerOp;
+
+        private Result(final String name, final String corpus, final long operations,
+                final double nanosPerOp, final double nanosError, final double bytesPerOp) {
+            this.name = name;
+            this.corpus = corpus;
+            this.operations = operations;
+            this.nanosPerOp = nanosPerOp;
+            this.nanosError = nanosError;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double opsPerSecond() {
+            return 1e9 / this.nanosPerOp;
+        }
+
+        // MB allocated per second of running the operation
+        public double allocationRate() {
+            return this.bytesPerOp * this.opsPerSecond() / 1e6;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationNanos;
+    private long checksum = 0L;
+
+    public Benchmark(final int warmupIterations, final int iterations, final long iterationMs) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMs * 1_000_000L;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return (THREADS != null) ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0L;
+    }
+
+    public long getChecksum() {
+        return this.checksum;
+    }
+
+    // runs operation over positions 0..size-1, round robin
+    public Result measure(final String name, final String corpus, final int size, final Operation operation) {
+        int next = 0;
+        long[] counts = new long[3];
+        for (int w = 0; w < this.warmupIterations; w++) {
+            next = this.iteration(operation, size, next, counts);
+        }
+        long operations = 0L;
+        long nanos = 0L;
+        long bytes = 0L;
+        double sum = 0.0;
+        double sumSquares = 0.0;
+        for (int i = 0; i < this.iterations; i++) {
+            next = this.iteration(operation, size, next, counts);
+            double nanosPerOp = (double) counts[0] / counts[1];
+            sum += nanosPerOp;
+            sumSquares += nanosPerOp * nanosPerOp;
+            nanos += counts[0];
+            operations += counts[1];
+            bytes += counts[2];
+        }
+        int n = this.iterations;
+        double variance = (n > 1) ? Math.max(0.0, (sumSquares - sum * sum / n) / (n - 1)) : 0.0;
+        return new Result(name, corpus, operations, (double) nanos / operations,
+                1.96 * Math.sqrt(variance / n),
+                (THREADS != null) ? (double) bytes / operations : Double.NaN);
+    }
+
+    // one iteration starting at position next; stores { elapsed nanos, operations, allocated bytes }
+    // in counts and returns where the next iteration starts
+    private int iteration(final Operation operation, final int size, int next, final long[] counts) {
+        long ops = 0L;
+        long sink = 0L;
+        long bytes = allocatedBytes();
+        long t0 = System.nanoTime();
+        long elapsed;
+        do {
+            sink += operation.run(next);
+            next = (next + 1 == size) ? 0 : next + 1;
+            ops++;
+            elapsed = System.nanoTime() - t0;
+        } while (elapsed < this.iterationNanos);
+        counts[2] = allocatedBytes() - bytes;
+        counts[0] = elapsed;
+        counts[1] = ops;
+        this.checksum += sink;
+        return next;
+    }
+
+    public static void printHeader(final PrintStream out) {
+        out.printf(Locale.ROOT, "%-36s %-8s %10s %24s %12s %12s %12s%n",
+                "benchmark", "corpus", "ops", "ns/op", "ops/s", "B/op", "alloc MB/s");
+    }
+
+    public static void print(final PrintStream out, final Result r) {
+        out.printf(Locale.ROOT, "%-36s %-8s %10d %24s %12.0f %12.1f %12.1f%n",
+                r.name, r.corpus, r.operations,
+                String.format(Locale.ROOT, "%.1f +- %.1f", r.nanosPerOp, r.nanosError),
+                r.opsPerSecond(), r.bytesPerOp, r.allocationRate());
+    }
+
+    // machine-readable form, one line per result, for comparing runs
+    public static void printCsvHeader(final PrintStream out) {
+        out.println("benchmark,corpus,ops,ns_per_op,ns_error,ops_per_s,bytes_per_op,alloc_mb_per_s");
+    }
+
+    public static void printCsv(final PrintStream out, final Result r) {
+        out.printf(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.1f,%.2f,%.2f%n",
+                r.name, r.corpus, r.operations, r.nanosPerOp, r.nanosError,
+                r.opsPerSecond(), r.bytesPerOp, r.allocationRate());
+    }
+
+}
@@ -0,0 +1,158 @@
+package src.pas.othello.benchmark;
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.traversal.Node;
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.ordering.MoveOrderer;
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Benchmark suite for the Othello agent's hot paths, over the saved positions of PositionCorpus
+ * (midgame and endgame), reporting time and allocation per operation (see Benchmark):
+ *
+ * OthelloNode.getChildren              children of a game-engine node (one Game copy per child)
+ * Heuristics.calculateHeuristicValue   the classic evaluation of a node
+ * MoveOrderer.orderChildren            scoring and sorting a node's children
+ * alphaBeta                            one full-window search (MIDGAME_DEPTH or ENDGAME_DEPTH plies)
+ *                                      from an empty table (OthelloAgent.searchValue), configured
+ *                                      like the game's agent apart from the table size
+ *
+ * Nodes and child lists are built before timing starts. Run from cs440 so the corpus, pattern and
+ * ProbCut files are found, on an otherwise idle machine, and compare runs with the CSV output. The
+ * filter is a regular expression on the benchmark name, so single benchmarks can be run in their
+ * own JVM, the way JMH forks (the filter is searched for in the name, so 'alphaBeta' selects the
+ * search and '.*' everything).
+ *
+ * usage: OthelloBenchmarks [iterations] [iterationMs] [filter] [csv]
+ *        OthelloBenchmarks generate [positions] [seed] [output]
+ * e.g. java -cp "lib/*:." src.pas.othello.benchmark.OthelloBenchmarks 10 1000 '.*' bench.csv
+ */
+public final class OthelloBenchmarks
+        extends Object {
+
+    public static final int WARMUP_ITERATIONS = 5;
+    public static final int MIDGAME_DEPTH = 6;
+    public static final int ENDGAME_DEPTH = 8;
+    // the table is cleared before every search; at 2MB that stays a small part of the measurement
+    public static final int TABLE_BITS = 16;
+
+    private OthelloBenchmarks() {
+    }
+
+    // a game-engine node for player to move (as BLACK, who is also MAX)
+    private static OthelloAgent.OthelloNode node(final long player, final long opponent) {
+        Game game = new Game(new Random(0L), 10000);
+        for (int square = 0; square < 64; square++) {
+            PlayerType cell = ((player & (1L << square)) != 0L) ? PlayerType.BLACK
+                    : ((opponent & (1L << square)) != 0L) ? PlayerType.WHITE
+                            : null;
+            game.getBoard().setCell(BitBoard.toCoordinate(square), cell);
+        }
+        game.setCurrentPlayerType(PlayerType.BLACK);
+        game.calculateFrontiers();
+        OthelloAgent.OthelloNode node = new OthelloAgent.OthelloNode(PlayerType.BLACK, game.getView(), 0);
+        BitBoard check = BitBoard.fromGameView(node.getGameView(), PlayerType.BLACK);
+        if (check.getMine() != player || check.getTheirs() != opponent) {
+            throw new IllegalStateException("could not set up position " + Long.toHexString(player) + " "
+                    + Long.toHexString(opponent));
+        }
+        return node;
+    }
+
+    private static void run(final List<PositionCorpus> corpora, final Benchmark benchmark, final Pattern filter,
+            final PrintStream out, final PrintStream csv) {
+        OthelloAgent agent = new OthelloAgent(PlayerType.BLACK, 0L, TABLE_BITS, OthelloAgent.SearchMode.valueOf(
+                System.getProperty("othello.searchMode", OthelloAgent.SearchMode.ALPHA_BETA.name())));
+        Benchmark.printHeader(out);
+        for (PositionCorpus corpus : corpora) {
+            int n = corpus.size();
+            OthelloAgent.OthelloNode[] nodes = new OthelloAgent.OthelloNode[n];
+            List<List<Node>> children = new ArrayList<List<Node>>(n);
+            BitBoard[] roots = new BitBoard[n];
+            for (int i = 0; i < n; i++) {
+                nodes[i] = node(corpus.getPlayer(i), corpus.getOpponent(i));
+                children.add(nodes[i].getChildren());
+                roots[i] = new BitBoard(corpus.getPlayer(i), corpus.getOpponent(i), true, BitBoard.PASS, 0);
+            }
+            int depth = PositionCorpus.ENDGAME.equals(corpus.getName()) ? ENDGAME_DEPTH : MIDGAME_DEPTH;
+
+            List<Benchmark.Result> results = new ArrayList<Benchmark.Result>();
+            if (filter.matcher("OthelloNode.getChildren").find()) {
+                results.add(benchmark.measure("OthelloNode.getChildren", corpus.getName(), n,
+                        i -> nodes[i].getChildren().size()));
+            }
+            if (filter.matcher("Heuristics.calculateHeuristicValue").find()) {
+                results.add(benchmark.measure("Heuristics.calculateHeuristicValue", corpus.getName(), n,
+                        i -> Double.doubleToRawLongBits(Heuristics.calculateHeuristicValue(nodes[i]))));
+            }
+            // sorting in place is fine: every call scores the children again and sorts from scratch
+            if (filter.matcher("MoveOrderer.orderChildren").find()) {
+                results.add(benchmark.measure("MoveOrderer.orderChildren", corpus.getName(), n,
+                        i -> MoveOrderer.orderChildren(children.get(i)).get(0).getLastMove().hashCode()));
+            }
+            String search = "alphaBeta(depth " + depth + ")";
+            if (filter.matcher(search).find()) {
+                results.add(benchmark.measure(search, corpus.getName(), n,
+                        i -> Double.doubleToRawLongBits(agent.searchValue(roots[i], depth))));
+            }
+            for (Benchmark.Result r : results) {
+                Benchmark.print(out, r);
+                if (csv != null) {
+                    Benchmark.printCsv(csv, r);
+                }
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length > 0 && "generate".equals(args[0])) {
+            int positions = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+            long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1L;
+            Path output = Path.of((args.length > 3) ? args[3] : PositionCorpus.DEFAULT_PATH);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output), false, "UTF-8")) {
+                PositionCorpus.generate(positions, seed, out);
+            }
+            System.out.println("wrote " + positions + " midgame and endgame positions to " + output);
+            return;
+        }
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        long iterationMs = (args.length > 1) ? Long.parseLong(args[1]) : 1000L;
+        Pattern filter = Pattern.compile((args.length > 2) ? args[2] : ".*");
+        Path csvPath = (args.length > 3) ? Path.of(args[3]) : null;
+
+        List<PositionCorpus> corpora = PositionCorpus.load(Path.of(PositionCorpus.DEFAULT_PATH));
+        Benchmark benchmark = new Benchmark(WARMUP_ITERATIONS, iterations, iterationMs);
+        PrintStream out = System.out;
+        PrintStream csv = (csvPath != null)
+                ? new PrintStream(Files.newOutputStream(csvPath), true, "UTF-8")
+                : null;
+        if (csv != null) {
+            Benchmark.printCsvHeader(csv);
+        }
+        try {
+            run(corpora, benchmark, filter, out, csv);
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+        }
+        out.println("checksum " + benchmark.getChecksum());
+    }
+
+}
@@ -0,0 +1,175 @@
+package src.pas.othello.benchmark;
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.PlayerType;
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * A named set of positions for OthelloBenchmarks, each from the point of view of the side to move
+ * (which always has a legal move).
+ *
+ * File format: plain text, one position per line, '#' starts a comment:
+ * corpus player opponent
+ * with both bitboards as 16 hex digits (bit row * 8 + col). generate() writes a midgame and an
+ * endgame corpus taken from self-play games, so the shipped file can be regenerated exactly.
+ */
+public final class PositionCorpus
+        extends Object {
+
+    // relative to the directory the game is launched from
+    public static final String DEFAULT_PATH = "data/othello/benchmark.positions";
+    public static final String MIDGAME = "midgame";
+    public static final String ENDGAME = "endgame";
+    // empties ranges the two corpora are drawn from
+    public static final int MIDGAME_MIN_EMPTIES = 24;
+    public static final int MIDGAME_MAX_EMPTIES = 40;
+    public static final int ENDGAME_MIN_EMPTIES = 10;
+    public static final int ENDGAME_MAX_EMPTIES = 16;
+    // self-play for generate(): random opening moves, then fixed-depth search
+    public static final int RANDOM_PLIES = 10;
+    public static final int PLAY_DEPTH = 3;
+
+    private final String name;
+    private final long[] players;
+    private final long[] opponents;
+
+    public PositionCorpus(final String name, final long[] players, final long[] opponents) {
+        if (players.length != opponents.length) {
+            throw new IllegalArgumentException("players and opponents differ in length");
+        }
+        this.name = name;
+        this.players = players;
+        this.opponents = opponents;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int size() {
+        return this.players.length;
+    }
+
+    public long getPlayer(final int i) {
+        return this.players[i];
+    }
+
+    public long getOpponent(final int i) {
+        return this.opponents[i];
+    }
+
+    // every corpus in the file, in the order they first appear
+    public static List<PositionCorpus> load(final Path path) throws IOException {
+        Map<String, List<long[]>> positions = new LinkedHashMap<String, List<long[]>>();
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String text = ((comment < 0) ? line : line.substring(0, comment)).trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                String[] fields = text.split("\\s+");
+                try {
+                    if (fields.length != 3) {
+                        throw new NumberFormatException("expected 3 fields, got " + fields.length);
+                    }
+                    long player = Long.parseUnsignedLong(fields[1], 16);
+                    long opponent = Long.parseUnsignedLong(fields[2], 16);
+                    if ((player & opponent) != 0L || BitBoard.legalMoves(player, opponent) == 0L) {
+                        throw new NumberFormatException("overlapping discs or no legal move");
+                    }
+                    positions.computeIfAbsent(fields[0], k -> new ArrayList<long[]>())
+                            .add(new long[] { player, opponent });
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNumber + ": bad position '" + line + "' (" + e.getMessage() + ")");
+                }
+            }
+        }
+        List<PositionCorpus> corpora = new ArrayList<PositionCorpus>();
+        for (Map.Entry<String, List<long[]>> e : positions.entrySet()) {
+            List<long[]> list = e.getValue();
+            long[] players = new long[list.size()];
+            long[] opponents = new long[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                players[i] = list.get(i)[0];
+                opponents[i] = list.get(i)[1];
+            }
+            corpora.add(new PositionCorpus(e.getKey(), players, opponents));
+        }
+        return corpora;
+    }
+
+    // count midgame and count endgame positions, one of each per self-play game (at a random number
+    // of empties within the corpus's range), in the format load() reads
+    public static void generate(final int count, final long seed, final PrintStream out) {
+        OthelloAgent agent = new OthelloAgent(PlayerType.BLACK, 0L, OthelloAgent.SearchMode.PVS);
+        Random random = new Random(seed);
+        StringBuilder midgame = new StringBuilder();
+        StringBuilder endgame = new StringBuilder();
+        int games = 0;
+        while (games < count) {
+            int midgameEmpties = MIDGAME_MIN_EMPTIES + random.nextInt(MIDGAME_MAX_EMPTIES - MIDGAME_MIN_EMPTIES + 1);
+            int endgameEmpties = ENDGAME_MIN_EMPTIES + random.nextInt(ENDGAME_MAX_EMPTIES - ENDGAME_MIN_EMPTIES + 1);
+            long[] mid = null;
+            long[] end = null;
+            long[] position = BitBoard.startPosition();
+            for (int ply = 0; end == null; ply++) {
+                long player = position[0];
+                long opponent = position[1];
+                long moves = BitBoard.legalMoves(player, opponent);
+                if (moves == 0L) {
+                    if (BitBoard.legalMoves(opponent, player) == 0L) {
+                        break;
+                    }
+                    BitBoard.pass(position);
+                    continue;
+                }
+                int empties = Long.bitCount(~(player | opponent));
+                if (mid == null && empties <= midgameEmpties) {
+                    mid = position.clone();
+                }
+                if (empties <= endgameEmpties) {
+                    end = position.clone();
+                    break;
+                }
+                int move;
+                if (ply < RANDOM_PLIES) {
+                    move = BitBoard.randomMove(moves, random);
+                } else {
+                    move = agent.searchFixedDepth(new BitBoard(player, opponent, true, BitBoard.PASS, 0), PLAY_DEPTH);
+                }
+                BitBoard.play(position, move);
+            }
+            // a game that ended early is replaced by another
+            if (mid != null && end != null) {
+                midgame.append(format(MIDGAME, mid));
+                endgame.append(format(ENDGAME, end));
+                games++;
+            }
+        }
+        out.println("# corpus player opponent (side to move first), " + count + " self-play games, seed " + seed);
+        out.print(midgame);
+        out.print(endgame);
+    }
+
+    private static String format(final String corpus, final long[] position) {
+        return String.format("%s %016x %016x%n", corpus, position[0], position[1]);
+    }
+
+}
@@ -0,0 +1,176 @@
+package src.pas.othello.book;
+
+// SYSTEM IMPORTS
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.Symmetry;
+
+/**
+ * Read-only opening book, memory-mapped from disk.
+ *
+ * Positions are stored from the mover's point of view (player = side to move) in canonical
+ * orientation (see Symmetry.canonicalSymmetry), so one record covers all 8 orientations and both
+ * colours. File layout, big-endian:
+ *
+ * header: int MAGIC, int record count
+ * record: long player, long opponent, int move (square in canonical orientation), float value
+ *
+ * Records are sorted by (player, opponent) as unsigned longs, and probe() binary searches them.
+ */
+public final class OpeningBook
+        extends Object {
+
+    public static final int MAGIC = 0x4F424B31; // "OBK1"
+    public static final int HEADER_BYTES = 8;
+    public static final int RECORD_BYTES = 24;
+    // relative to the directory the game is launched from; -Dothello.book overrides it
+    public static final String DEFAULT_PATH = "data/othello/opening.book";
+
+    // one book position; also what OpeningBookBuilder collects before writing
+    public static final class Entry
+            extends Object {
+        public final long player;
+        public final long opponent;
+        public final int move;
+        public final float value;
+
+        public Entry(final long player, final long opponent, final int move, final float value) {
+            this.player = player;
+            this.opponent = opponent;
+            this.move = move;
+            this.value = value;
+        }
+    }
+
+    private static final OpeningBook EMPTY = new OpeningBook(null, 0);
+
+    private final ByteBuffer records;
+    private final int size;
+
+    private OpeningBook(final ByteBuffer records, final int size) {
+        this.records = records;
+        this.size = size;
+    }
+
+    public static OpeningBook empty() {
+        return EMPTY;
+    }
+
+    public static OpeningBook load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not an opening book");
+            }
+            int size = buffer.getInt(4);
+            if (buffer.limit() != HEADER_BYTES + (long) size * RECORD_BYTES) {
+                throw new IOException(path + " is truncated: expected " + size + " records");
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    // loads DEFAULT_PATH (or -Dothello.book); a missing or unreadable book just means no book moves
+    public static OpeningBook loadDefault() {
+        return loadDefault(System.getProperties());
+    }
+
+    // same, with othello.book taken from config
+    public static OpeningBook loadDefault(final Properties config) {
+        Path path = Path.of(config.getProperty("othello.book", DEFAULT_PATH));
+        if (!Files.isReadable(path)) {
+            return EMPTY;
+        }
+        try {
+            return load(path);
+        } catch (IOException e) {
+            System.err.println("Warning: could not load opening book: " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // book square for player to move against opponent, or BitBoard.PASS if the position is not in the book
+    public int probe(final long player, final long opponent) {
+        if (this.size == 0) {
+            return BitBoard.PASS;
+        }
+        int s = Symmetry.canonicalSymmetry(player, opponent);
+        int index = this.find(player, opponent, s);
+        return (index < 0) ? BitBoard.PASS : Symmetry.inverseSquare(this.records.getInt(offset(index) + 16), s);
+    }
+
+    // stored search value (mover's point of view) of the position, or NaN if it is not in the book
+    public double value(final long player, final long opponent) {
+        if (this.size == 0) {
+            return Double.NaN;
+        }
+        int index = this.find(player, opponent, Symmetry.canonicalSymmetry(player, opponent));
+        return (index < 0) ? Double.NaN : this.records.getFloat(offset(index) + 20);
+    }
+
+    // index of the record for the position, or -1; s is its canonical symmetry, which callers that
+    // map the stored move back need as well, so it is computed once by them
+    private int find(final long player, final long opponent, final int s) {
+        long p = Symmetry.transform(player, s);
+        long o = Symmetry.transform(opponent, s);
+        int lo = 0;
+        int hi = this.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = offset(mid);
+            int cmp = compare(this.records.getLong(at), this.records.getLong(at + 8), p, o);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static int offset(final int index) {
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+
+    private static int compare(final long p1, final long o1, final long p2, final long o2) {
+        int cmp = Long.compareUnsigned(p1, p2);
+        return (cmp != 0) ? cmp : Long.compareUnsigned(o1, o2);
+    }
+
+    // writes canonical entries (as produced by OpeningBookBuilder) in the format load() reads
+    public static void write(final OutputStream out, final Collection<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<Entry>(entries);
+        sorted.sort((a, b) -> compare(a.player, a.opponent, b.player, b.opponent));
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(sorted.size());
+        for (Entry e : sorted) {
+            data.writeLong(e.player);
+            data.writeLong(e.opponent);
+            data.writeInt(e.move);
+            data.writeFloat(e.value);
+        }
+        data.flush();
+    }
+
+}
@@ -0,0 +1,142 @@
+package src.pas.othello.book;
+
+// SYSTEM IMPORTS
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.PlayerType;
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.Symmetry;
+
+/**
+ * Offline opening book generator. Plays self-play games with OthelloAgent from the standard start,
+ * searching every position in the first few plies to a fixed depth and recording the best reply.
+ * The move actually played is the searched one, except that with some probability a random legal
+ * move is played instead so the book covers more than a single line.
+ *
+ * usage: OpeningBookBuilder [games] [plies] [depth] [randomness] [seed] [output]
+ * e.g. java -cp "lib/*:." src.pas.othello.book.OpeningBookBuilder 400 10 10 0.3 1 data/othello/opening.book
+ */
+public final class OpeningBookBuilder
+        extends Object {
+
+    private static final class Key
+            extends Object {
+        private final long player;
+        private final long opponent;
+
+        private Key(final long player, final long opponent) {
+            this.player = player;
+            this.opponent = opponent;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) other;
+            return this.player == k.player && this.opponent == k.opponent;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.player * 31 + this.opponent);
+        }
+    }
+
+    private final OthelloAgent agent;
+    private final int plies;
+    private final int depth;
+    private final double randomness;
+    private final Random random;
+    private final Map<Key, OpeningBook.Entry> entries = new HashMap<Key, OpeningBook.Entry>();
+
+    public OpeningBookBuilder(final int plies, final int depth, final double randomness, final long seed) {
+        // the agent is only used for its search; player type and move time do not matter here
+        this.agent = new OthelloAgent(PlayerType.BLACK, 0L, OthelloAgent.SearchMode.PVS);
+        this.plies = plies;
+        this.depth = depth;
+        this.randomness = randomness;
+        this.random = new Random(seed);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void playGame() {
+        long[] position = BitBoard.startPosition();
+        for (int ply = 0; ply < this.plies; ply++) {
+            long player = position[0];
+            long opponent = position[1];
+            long moves = BitBoard.legalMoves(player, opponent);
+            if (moves == 0L) {
+                if (BitBoard.legalMoves(opponent, player) == 0L) {
+                    return;
+                }
+                BitBoard.pass(position);
+                continue;
+            }
+            int move = this.bookMove(player, opponent);
+            if (this.random.nextDouble() < this.randomness) {
+                move = BitBoard.randomMove(moves, this.random);
+            }
+            BitBoard.play(position, move);
+        }
+    }
+
+    // searches (player, opponent) unless an orientation of it was already searched; returns the real square
+    private int bookMove(final long player, final long opponent) {
+        int s = Symmetry.canonicalSymmetry(player, opponent);
+        Key key = new Key(Symmetry.transform(player, s), Symmetry.transform(opponent, s));
+        OpeningBook.Entry entry = this.entries.get(key);
+        if (entry == null) {
+            BitBoard root = new BitBoard(player, opponent, true, BitBoard.PASS, 0);
+            int move = this.agent.searchFixedDepth(root, this.depth);
+            entry = new OpeningBook.Entry(key.player, key.opponent, Symmetry.transformSquare(move, s),
+                    (float) this.agent.getLastSearchValue());
+            this.entries.put(key, entry);
+        }
+        return Symmetry.inverseSquare(entry.move, s);
+    }
+
+    public void write(final Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            OpeningBook.write(out, this.entries.values());
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 400;
+        int plies = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int depth = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        double randomness = (args.length > 3) ? Double.parseDouble(args[3]) : 0.3;
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1L;
+        Path output = Path.of((args.length > 5) ? args[5] : OpeningBook.DEFAULT_PATH);
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth, randomness, seed);
+        long t0 = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            builder.playGame();
+            if ((g + 1) % 50 == 0) {
+                System.out.println("games: " + (g + 1) + " positions: " + builder.size() +
+                        " elapsed: " + (System.nanoTime() - t0) / 1_000_000_000L + "s");
+            }
+        }
+        builder.write(output);
+        System.out.println("wrote " + builder.size() + " positions to " + output);
+    }
+
+}
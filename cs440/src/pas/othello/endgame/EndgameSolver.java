@@ -0,0 +1,280 @@
+package src.pas.othello.endgame;
+
+// SYSTEM IMPORTS
+import java.util.function.BooleanSupplier;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.TranspositionTable;
+import src.pas.othello.utils.Zobrist;
+
+/**
+ * Exact endgame search: plays every line to the end of the game and returns the final disc
+ * differential, using the same convention as OthelloNode.getTerminalUtility (+-64 on a wipeout,
+ * otherwise discs minus opponent discs, empty squares not awarded).
+ *
+ * Negamax over (player, opponent) masks from the side to move's point of view:
+ * - above FASTEST_FIRST_EMPTIES, moves are tried fewest-opponent-replies first (corners break ties)
+ * - below it, moves in quadrants with an odd number of empties go first (parity)
+ * - the last three empties skip move generation and just try each empty square
+ * - positions with HASH_MIN_EMPTIES or more empties go through the solver's own table, keyed from
+ *   the mover's point of view so both colours share entries
+ */
+public final class EndgameSolver
+        extends Object {
+
+    // thrown out of solve() when the abort check fires
+    public static final class Aborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static final int FASTEST_FIRST_EMPTIES = 7;
+    public static final int HASH_MIN_EMPTIES = 7;
+    private static final int ABORT_CHECK_MASK = 0x3FF;
+
+    private static final long[] QUADRANTS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+
+    private final TranspositionTable table;
+    // scratch move lists, one per number of empties so recursion never shares one
+    private final int[][] moveBuffers = new int[65][32];
+    private final int[][] keyBuffers = new int[65][32];
+
+    private BooleanSupplier abort = () -> false;
+    private long nodes = 0;
+    private int value = 0;
+
+    public EndgameSolver(final int tableBits) {
+        this.table = new TranspositionTable(tableBits);
+    }
+
+    public final long getNodes() {
+        return this.nodes;
+    }
+
+    // exact value of the last solveRoot, for the side that was to move
+    public final int getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns the best square for player (who must have a legal move) and sets getValue().
+     * abort is polled every 1024 nodes; when it returns true the search throws Aborted.
+     */
+    public int solveRoot(final long player, final long opponent, final BooleanSupplier abort) {
+        this.abort = abort;
+        this.nodes = 0;
+        this.table.newSearch();
+        int empties = Long.bitCount(~(player | opponent));
+        int count = this.orderMoves(player, opponent, BitBoard.legalMoves(player, opponent), empties, BitBoard.PASS);
+        int[] moves = this.moveBuffers[empties];
+        int alpha = -65;
+        int beta = 65;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int sq = moves[i];
+            long flipped = BitBoard.flips(player, opponent, sq);
+            long p = player | flipped | (1L << sq);
+            long o = opponent & ~flipped;
+            int v;
+            if (i == 0) {
+                v = -this.solve(o, p, -beta, -alpha, empties - 1);
+            } else {
+                v = -this.solve(o, p, -alpha - 1, -alpha, empties - 1);
+                if (v > alpha) {
+                    v = -this.solve(o, p, -beta, -alpha, empties - 1);
+                }
+            }
+            if (v > alpha) {
+                alpha = v;
+                bestMove = sq;
+            }
+        }
+        this.value = alpha;
+        return bestMove;
+    }
+
+    // negamax value of the position with player to move, inside (alpha, beta)
+    private int solve(final long player, final long opponent, int alpha, int beta, final int empties) {
+        if ((++this.nodes & ABORT_CHECK_MASK) == 0 && this.abort.getAsBoolean()) {
+            throw new Aborted();
+        }
+        if (empties <= 3) {
+            return this.solveLastFew(player, opponent, alpha, beta, ~(player | opponent), false);
+        }
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0L) {
+            if (BitBoard.legalMoves(opponent, player) == 0L) {
+                return finalScore(player, opponent);
+            }
+            return -this.solve(opponent, player, -beta, -alpha, empties);
+        }
+
+        final int alphaOrig = alpha;
+        long key = 0L;
+        int hashMove = BitBoard.PASS;
+        if (empties >= HASH_MIN_EMPTIES) {
+            key = Zobrist.hash(player, opponent, true);
+            long entry = this.table.probe(key);
+            if (TranspositionTable.isEntry(entry)) {
+                hashMove = TranspositionTable.move(entry);
+                int stored = (int) TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return stored;
+                } else if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, stored);
+                } else {
+                    beta = Math.min(beta, stored);
+                }
+                if (alpha >= beta) {
+                    return stored;
+                }
+            }
+        }
+
+        int count = this.orderMoves(player, opponent, moves, empties, hashMove);
+        int[] list = this.moveBuffers[empties];
+        int best = -65;
+        int bestMove = list[0];
+        for (int i = 0; i < count; i++) {
+            int sq = list[i];
+            long flipped = BitBoard.flips(player, opponent, sq);
+            long p = player | flipped | (1L << sq);
+            long o = opponent & ~flipped;
+            int v;
+            if (i == 0) {
+                v = -this.solve(o, p, -beta, -alpha, empties - 1);
+            } else {
+                v = -this.solve(o, p, -alpha - 1, -alpha, empties - 1);
+                if (v > alpha && v < beta) {
+                    v = -this.solve(o, p, -beta, -alpha, empties - 1);
+                }
+            }
+            if (v > best) {
+                best = v;
+                bestMove = sq;
+                if (v > alpha) {
+                    alpha = v;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (empties >= HASH_MIN_EMPTIES) {
+            int bound = (best <= alphaOrig) ? TranspositionTable.UPPER
+                    : (best >= beta) ? TranspositionTable.LOWER
+                            : TranspositionTable.EXACT;
+            this.table.store(key, empties, bound, best, bestMove);
+        }
+        return best;
+    }
+
+    // last three (or fewer) empties: try each empty square directly, odd-parity quadrants first
+    private int solveLastFew(final long player, final long opponent, int alpha, final int beta,
+            final long empty, final boolean passed) {
+        if (Long.bitCount(empty) == 1) {
+            return solveLastOne(player, opponent, Long.numberOfTrailingZeros(empty));
+        }
+        int best = -65;
+        boolean moved = false;
+        for (int pass = 0; pass < 2; pass++) {
+            for (long e = empty; e != 0L; e &= e - 1) {
+                int sq = Long.numberOfTrailingZeros(e);
+                // first pass: squares whose quadrant holds an odd number of empties
+                boolean odd = (Long.bitCount(empty & quadrantOf(sq)) & 1) == 1;
+                if (odd != (pass == 0)) {
+                    continue;
+                }
+                long flipped = BitBoard.flips(player, opponent, sq);
+                if (flipped == 0L) {
+                    continue;
+                }
+                moved = true;
+                long p = player | flipped | (1L << sq);
+                long o = opponent & ~flipped;
+                int v = -this.solveLastFew(o, p, -beta, -alpha, empty & ~(1L << sq), false);
+                if (v > best) {
+                    best = v;
+                    if (v > alpha) {
+                        alpha = v;
+                        if (alpha >= beta) {
+                            return best;
+                        }
+                    }
+                }
+            }
+        }
+        if (moved) {
+            return best;
+        }
+        if (passed) {
+            // neither side can move: the opponent's pass brought us back here
+            return -finalScore(opponent, player);
+        }
+        return -this.solveLastFew(opponent, player, -beta, -alpha, empty, true);
+    }
+
+    // one empty square left: whoever can flip on it plays it, then the game is over
+    private static int solveLastOne(final long player, final long opponent, final int sq) {
+        long flipped = BitBoard.flips(player, opponent, sq);
+        if (flipped != 0L) {
+            return finalScore(player | flipped | (1L << sq), opponent & ~flipped);
+        }
+        flipped = BitBoard.flips(opponent, player, sq);
+        if (flipped != 0L) {
+            return finalScore(player & ~flipped, opponent | flipped | (1L << sq));
+        }
+        return finalScore(player, opponent);
+    }
+
+    // fills moveBuffers[empties] best-first and returns the number of moves
+    private int orderMoves(final long player, final long opponent, long moves, final int empties,
+            final int hashMove) {
+        int[] list = this.moveBuffers[empties];
+        int[] keys = this.keyBuffers[empties];
+        long empty = ~(player | opponent);
+        int count = 0;
+        while (moves != 0L) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            int key;
+            if (sq == hashMove) {
+                key = Integer.MIN_VALUE;
+            } else if (empties > FASTEST_FIRST_EMPTIES) {
+                long flipped = BitBoard.flips(player, opponent, sq);
+                long replies = BitBoard.legalMoves(opponent & ~flipped, player | flipped | (1L << sq));
+                key = 4 * Long.bitCount(replies) - (((BitBoard.CORNERS >>> sq) & 1L) != 0L ? 2 : 0);
+            } else {
+                key = ((Long.bitCount(empty & quadrantOf(sq)) & 1) == 1) ? 0 : 1;
+            }
+            // insertion sort: lists are short and this keeps equal keys in square order
+            int i = count++;
+            while (i > 0 && keys[i - 1] > key) {
+                list[i] = list[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+            list[i] = sq;
+            keys[i] = key;
+        }
+        return count;
+    }
+
+    private static long quadrantOf(final int sq) {
+        return QUADRANTS[((sq >>> 5) << 1) | ((sq >>> 2) & 1)];
+    }
+
+    private static int finalScore(final long player, final long opponent) {
+        if (opponent == 0L) {
+            return 64;
+        } else if (player == 0L) {
+            return -64;
+        }
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+
+}
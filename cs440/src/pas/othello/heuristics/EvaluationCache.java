@@ -0,0 +1,43 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Direct-mapped cache of leaf evaluations, shared by all search threads without locking.
+ *
+ * Like TranspositionTable, each slot stores key ^ value bits next to the value bits, so a slot torn
+ * by two concurrent writers reads as a miss rather than as another position's value.
+ */
+public final class EvaluationCache
+        extends Object {
+
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+
+    public EvaluationCache(final int log2Size) {
+        this.keys = new long[1 << log2Size];
+        this.values = new long[1 << log2Size];
+        this.mask = (1 << log2Size) - 1;
+    }
+
+    // cached value for key, or NaN if it is not cached
+    public double probe(final long key) {
+        int slot = (int) key & this.mask;
+        long bits = this.values[slot];
+        if ((this.keys[slot] ^ bits) == key) {
+            return Double.longBitsToDouble(bits);
+        }
+        return Double.NaN;
+    }
+
+    public void store(final long key, final double value) {
+        int slot = (int) key & this.mask;
+        long bits = Double.doubleToRawLongBits(value);
+        this.keys[slot] = key ^ bits;
+        this.values[slot] = bits;
+    }
+
+}
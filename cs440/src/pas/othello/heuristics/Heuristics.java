@@ -1,6 +1,7 @@
 package src.pas.othello.heuristics;
 
 // SYSTEM IMPORTS
+import edu.bu.pas.othello.game.Game;
 import edu.bu.pas.othello.traversal.Node;
 import edu.bu.pas.othello.utils.Coordinate;
 import edu.bu.pas.othello.game.PlayerType;
@@ -9,40 +10,81 @@ import edu.bu.pas.othello.game.PlayerType;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
 
+import src.pas.othello.utils.BitBoard;
+
 public class Heuristics
         extends Object {
-    private static double d(String key, double def) {
-        return Double.parseDouble(System.getProperty(key, Double.toString(def)));
-    }
 
-    // Class-level constants, read once per JVM at class-load time
-    private static final double BASE_PST = d("heur.basePST", 0.35);
-    private static final double BASE_MOB = d("heur.baseMob", 0.35);
-    private static final double BASE_POTMOB = d("heur.basePotMob", 0.25);
-    private static final double BASE_CAP = d("heur.baseCap", 0.3);
-    private static final double BASE_CORNER = d("heur.baseCorner", 0.35);
-    private static final double BASE_EDGE = d("heur.baseEdge", 0.35);
-    private static final double BASE_PARITY = d("heur.baseParity", 0.45);
-    private static final double BASE_DIAG = d("heur.baseDiag", 0.10);
+    // Term weights, read from heur.* properties. DEFAULT comes from the system properties once per
+    // JVM; agents configured with their own Properties (e.g. tournament variants) get their own.
+    public static final class Weights
+            extends Object {
+        public static final Weights DEFAULT = fromProperties(System.getProperties());
+
+        private final double pst;
+        private final double mob;
+        private final double potMob;
+        private final double cap;
+        private final double corner;
+        private final double edge;
+        private final double parity;
+
+        private Weights(Properties p) {
+            this.pst = d(p, "heur.basePST", 0.35);
+            this.mob = d(p, "heur.baseMob", 0.35);
+            this.potMob = d(p, "heur.basePotMob", 0.25);
+            this.cap = d(p, "heur.baseCap", 0.3);
+            this.corner = d(p, "heur.baseCorner", 0.35);
+            this.edge = d(p, "heur.baseEdge", 0.35);
+            this.parity = d(p, "heur.baseParity", 0.45);
+        }
+
+        public static Weights fromProperties(Properties p) {
+            return new Weights(p);
+        }
+
+        private static double d(Properties p, String key, double def) {
+            return Double.parseDouble(p.getProperty(key, Double.toString(def)));
+        }
+    }
 
     public static double calculateHeuristicValue(Node node) {
-        int numOpenTiles = numOpenTiles(node);
+        BitBoard b = BitBoard.fromGameView(node.getGameView(), node.getMaxPlayerType());
+        return calculateHeuristicValue(b.getMine(), b.getTheirs());
+    }
+
+    // mine = MAX player's discs, theirs = other player's discs
+    public static double calculateHeuristicValue(long mine, long theirs) {
+        return calculateHeuristicValue(mine, theirs,
+                64 - Long.bitCount(mine | theirs),
+                Long.bitCount(mine) - Long.bitCount(theirs),
+                Long.bitCount(mine & BitBoard.CORNERS) - Long.bitCount(theirs & BitBoard.CORNERS),
+                pstScore(mine, theirs));
+    }
+
+    // Same value, with the open-tile, disc-difference, corner and PST terms supplied by the caller
+    // (IncrementalEvaluator keeps them up to date per move); only the rest is recomputed here.
+    public static double calculateHeuristicValue(long mine, long theirs,
+            int numOpenTiles, int discDiff, int cornerDiff, int pst) {
+        return calculateHeuristicValue(mine, theirs, numOpenTiles, discDiff, cornerDiff, pst, Weights.DEFAULT);
+    }
+
+    public static double calculateHeuristicValue(long mine, long theirs,
+            int numOpenTiles, int discDiff, int cornerDiff, int pst, Weights weights) {
         float percentageOpen = numOpenTiles / 60f;
         float progress = 1f - percentageOpen;
 
-        double score = currentScore(node);
+        double score = discDiff;
         double parity = score / 64.0;
 
-        int MynumCorners = cornerControl(node, node.getMaxPlayerType());
-        int OPnumCorners = cornerControl(node, node.getOtherPlayerType());
-        int cornerDiff = MynumCorners - OPnumCorners;
         double numCorners = cornerDiff / 4.0;
 
-        int Myflexibility = flexibility(node, node.getMaxPlayerType());
-        int OPflexibility = flexibility(node, node.getOtherPlayerType());
+        int Myflexibility = Long.bitCount(BitBoard.legalMoves(mine, theirs));
+        int OPflexibility = Long.bitCount(BitBoard.legalMoves(theirs, mine));
 
         double mobility;
         if (Myflexibility + OPflexibility == 0) {
@@ -52,11 +94,10 @@ public class Heuristics
         }
 
         // New terms (all ≤ Θ(n²))
-        int pst = pstScore(node);
-        int cap = cornerAdjacencyScore(node);
-        int edgeStable = stableEdgeApprox(node);
-        int potMe = potentialMobility(node, node.getMaxPlayerType());
-        int potOp = potentialMobility(node, node.getOtherPlayerType());
+        int cap = cornerAdjacencyScore(mine, theirs);
+        int stable = 3 * Stability.stableDifference(mine, theirs);
+        int potMe = potentialMobility(mine, theirs);
+        int potOp = potentialMobility(theirs, mine);
         double potMob = (potMe + potOp == 0) ? 0.0 : (double) (potMe - potOp) / (potMe + potOp);
 
         // double wMob = 4*progress * (1-percentageOpen);
@@ -78,20 +119,20 @@ public class Heuristics
 
         final double PST_MAX = 376.0; // sum of your PST positives on an 8x8
         final double CAP_MAX = 180.0; // 4 * (25 + 10 + 10) worst case swing
-        final double EDGE_MAX = 192.0; // 4 corners * 2 edges * 8 cells * weight 3
+        final double EDGE_MAX = 192.0; // 64 stable discs * weight 3
 
         double pstNorm = clamp(pst / PST_MAX, -1.0, 1.0);
         double capNorm = clamp(cap / CAP_MAX, -1.0, 1.0);
-        double edgeNorm = clamp(edgeStable / EDGE_MAX, -1.0, 1.0);
+        double edgeNorm = clamp(stable / EDGE_MAX, -1.0, 1.0);
 
         // Define the phase-adaptive formulas (still using progress)
-        double wPST = BASE_PST;// * (1.0 - progress); // strong early
-        double wMob = BASE_MOB;
-        double wPotMob = BASE_POTMOB;
-        double wCap = BASE_CAP;
-        double wCorner = BASE_CORNER;
-        double wEdge = BASE_EDGE;
-        double wParity = BASE_PARITY * progress; // strongest very late
+        double wPST = weights.pst;// * (1.0 - progress); // strong early
+        double wMob = weights.mob;
+        double wPotMob = weights.potMob;
+        double wCap = weights.cap;
+        double wCorner = weights.corner;
+        double wEdge = weights.edge;
+        double wParity = weights.parity * progress; // strongest very late
 
         double wSum = wPST + wMob + wPotMob + wCap + wCorner + wEdge + wParity;
         // --- Combine to hNorm ∈ [-1,1]
@@ -135,13 +176,14 @@ public class Heuristics
     public static double currentScore(Node node) {
         // current score
         PlayerType[][] cells = node.getGameView().getCells();
+        PlayerType opponent = Game.getOtherPlayerType(node.getMaxPlayerType());
         double myCount = 0;
         double opCount = 0;
         for (int r = 0; r < cells.length; r++) {
             for (int c = 0; c < cells[0].length; c++) {
                 if (cells[r][c] == node.getMaxPlayerType()) {
                     myCount += 1;
-                } else if (cells[r][c] == node.getOtherPlayerType()) {
+                } else if (cells[r][c] == opponent) {
                     opCount += 1;
                 }
             }
@@ -194,171 +236,141 @@ public class Heuristics
             { 120, -20, 20, 5, 5, 20, -20, 120 }
     };
 
-    private static int pstScore(Node node) {
-        PlayerType[][] cells = node.getGameView().getCells();
-        PlayerType me = node.getMaxPlayerType(), opp = node.getOtherPlayerType();
-        int s = 0;
+    // PST collapsed into one mask per distinct weight so scoring is a handful of popcounts
+    private static final int[] PST_WEIGHTS;
+    private static final long[] PST_MASKS;
+    static {
+        List<Integer> weights = new ArrayList<>();
+        List<Long> masks = new ArrayList<>();
         for (int r = 0; r < 8; r++) {
             for (int c = 0; c < 8; c++) {
-                if (cells[r][c] == me)
-                    s += PST[r][c];
-                else if (cells[r][c] == opp)
-                    s -= PST[r][c];
+                int idx = weights.indexOf(PST[r][c]);
+                if (idx < 0) {
+                    weights.add(PST[r][c]);
+                    masks.add(0L);
+                    idx = weights.size() - 1;
+                }
+                masks.set(idx, masks.get(idx) | (1L << (r * 8 + c)));
             }
         }
-        return s;
+        PST_WEIGHTS = new int[weights.size()];
+        PST_MASKS = new long[masks.size()];
+        for (int i = 0; i < PST_WEIGHTS.length; i++) {
+            PST_WEIGHTS[i] = weights.get(i);
+            PST_MASKS[i] = masks.get(i);
+        }
+    }
+
+    // static value of a single square, used as a cheap move-ordering tie breaker
+    public static int squareWeight(int square) {
+        return PST[square >>> 3][square & 7];
     }
 
-    private static int stableEdgeApprox(Node n) {
-        PlayerType[][] a = n.getGameView().getCells();
-        PlayerType me = n.getMaxPlayerType();
-        PlayerType opp = n.getOtherPlayerType();
+    private static int pstScore(long mine, long theirs) {
         int s = 0;
+        for (int i = 0; i < PST_WEIGHTS.length; i++) {
+            s += PST_WEIGHTS[i] * (Long.bitCount(mine & PST_MASKS[i]) - Long.bitCount(theirs & PST_MASKS[i]));
+        }
+        return s;
+    }
 
-        s += scanEdge(a, me, opp, 0, 0, 0, +1); // top row, → right
-        s += scanEdge(a, me, opp, 0, 0, +1, 0); // left col, ↓ down
-        s += scanEdge(a, me, opp, 0, 7, 0, -1); // top row, left
-        s += scanEdge(a, me, opp, 0, 7, +1, 0); // right col, ↓ down
-        s += scanEdge(a, me, opp, 7, 0, 0, +1); // bottom row, → right
-        s += scanEdge(a, me, opp, 7, 0, -1, 0); // left col, ↑ up
-        s += scanEdge(a, me, opp, 7, 7, 0, -1); // bottom row, left
-        s += scanEdge(a, me, opp, 7, 7, -1, 0); // right col, ↑ up
+    // squares walked from a corner, in the same order as the original (row, col, dRow, dCol) scans
+    private static final int[][] EDGE_RAYS = {
+            ray(0, 0, 0, +1), // top row, → right
+            ray(0, 0, +1, 0), // left col, ↓ down
+            ray(0, 7, 0, -1), // top row, left
+            ray(0, 7, +1, 0), // right col, ↓ down
+            ray(7, 0, 0, +1), // bottom row, → right
+            ray(7, 0, -1, 0), // left col, ↑ up
+            ray(7, 7, 0, -1), // bottom row, left
+            ray(7, 7, -1, 0) // right col, ↑ up
+    };
+
+    private static final int[][] DIAG_RAYS = {
+            ray(0, 0, +1, +1), // A1 ↘
+            ray(7, 0, -1, +1), // A8 ↗
+            ray(0, 7, +1, -1), // H1 ↖
+            ray(7, 7, -1, -1) // H8 ↙
+    };
 
+    private static int[] ray(int sr, int sc, int dr, int dc) {
+        int[] squares = new int[8];
+        for (int i = 0; i < 8; i++) {
+            squares[i] = (sr + i * dr) * 8 + (sc + i * dc);
+        }
+        return squares;
+    }
+
+    // corner runs along the edges; replaced by Stability in the evaluation, kept for StabilityBenchmark
+    static int stableEdgeApprox(long mine, long theirs) {
+        int s = 0;
+        for (int[] ray : EDGE_RAYS) {
+            s += scanRay(mine, theirs, ray);
+        }
         return s;
     }
 
-    private static int scanEdge(PlayerType[][] a, PlayerType me, PlayerType opp,
-            int sr, int sc, int dr, int dc) {
-        PlayerType corner = a[sr][sc];
-        int score = 0;
-        if (corner == null)
+    // +3 per disc in the run of the corner owner's discs starting at the corner, negative for the opponent
+    private static int scanRay(long mine, long theirs, int[] ray) {
+        long corner = 1L << ray[0];
+        long owner;
+        int sign;
+        if ((mine & corner) != 0L) {
+            owner = mine;
+            sign = 3;
+        } else if ((theirs & corner) != 0L) {
+            owner = theirs;
+            sign = -3;
+        } else {
             return 0;
-
-        int r = sr, c = sc;
-        if (corner == me) {
-            while (r >= 0 && r < 8 && c >= 0 && c < 8 && a[r][c] == me) {
-                score += 3;
-                r += dr;
-                c += dc;
-            }
-        } else if (corner == opp) {
-            while (r >= 0 && r < 8 && c >= 0 && c < 8 && a[r][c] == opp) {
-                score -= 3;
-                r += dr;
-                c += dc;
-            }
+        }
+        int score = 0;
+        for (int sq : ray) {
+            if ((owner & (1L << sq)) == 0L)
+                break;
+            score += sign;
         }
         return score;
     }
 
-    private static int cornerAdjacencyScore(Node n) {
-        PlayerType[][] a = n.getGameView().getCells();
-        PlayerType me = n.getMaxPlayerType(), opp = n.getOtherPlayerType();
-        int s = 0;
-
-        // For each corner, define its X and C squares
-        int[][] corners = { { 0, 0 }, { 0, 7 }, { 7, 0 }, { 7, 7 } };
-        int[][][] xs = {
-                { { 1, 1 } }, { { 1, 6 } }, { { 6, 1 } }, { { 6, 6 } }
-        };
-        int[][][] cs = {
-                { { 0, 1 }, { 1, 0 } }, { { 0, 6 }, { 1, 7 } }, { { 6, 0 }, { 7, 1 } }, { { 6, 7 }, { 7, 6 } }
-        };
+    // For each corner, its X square and C squares (bit masks)
+    private static final int[] CORNER_SQ = { 0, 7, 56, 63 };
+    private static final long[] X_SQ = { 1L << 9, 1L << 14, 1L << 49, 1L << 54 };
+    private static final long[] C_SQ = {
+            (1L << 1) | (1L << 8), (1L << 6) | (1L << 15), (1L << 48) | (1L << 57), (1L << 55) | (1L << 62)
+    };
 
+    private static int cornerAdjacencyScore(long mine, long theirs) {
+        int s = 0;
         for (int k = 0; k < 4; k++) {
-            int cr = corners[k][0], cc = corners[k][1];
-            PlayerType corner = a[cr][cc];
+            long corner = 1L << CORNER_SQ[k];
 
             // If corner empty, owning adjacent is risky → penalty
-            if (corner == null) {
-                for (int[] p : xs[k]) {
-                    if (a[p[0]][p[1]] == me)
-                        s -= 25;
-                    if (a[p[0]][p[1]] == opp)
-                        s += 25;
-                }
-                for (int[] p : cs[k]) {
-                    if (a[p[0]][p[1]] == me)
-                        s -= 10;
-                    if (a[p[0]][p[1]] == opp)
-                        s += 10;
-                }
-            } else if (corner == n.getMaxPlayerType()) {
+            if (((mine | theirs) & corner) == 0L) {
+                s -= 25 * Long.bitCount(mine & X_SQ[k]);
+                s += 25 * Long.bitCount(theirs & X_SQ[k]);
+                s -= 10 * Long.bitCount(mine & C_SQ[k]);
+                s += 10 * Long.bitCount(theirs & C_SQ[k]);
+            } else if ((mine & corner) != 0L) {
                 // If we own the corner, these neighbors become safe-ish → small bonus
-                for (int[] p : xs[k])
-                    if (a[p[0]][p[1]] == me)
-                        s += 5;
-                for (int[] p : cs[k])
-                    if (a[p[0]][p[1]] == me)
-                        s += 5;
+                s += 5 * Long.bitCount(mine & (X_SQ[k] | C_SQ[k]));
             }
         }
         return s;
     }
 
-    private static final int[][] DIRS = {
-            { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 }
-    };
-
-    private static int potentialMobility(Node n, PlayerType me) {
-        PlayerType[][] a = n.getGameView().getCells();
-        PlayerType opp = (me == n.getMaxPlayerType()) ? n.getOtherPlayerType() : n.getMaxPlayerType();
-        boolean[][] seen = new boolean[8][8];
-        int count = 0;
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                if (a[r][c] != null)
-                    continue;
-                for (int[] d : DIRS) {
-                    int nr = r + d[0], nc = c + d[1];
-                    if (nr >= 0 && nr < 8 && nc >= 0 && nc < 8 && a[nr][nc] == opp) {
-                        if (!seen[r][c]) {
-                            seen[r][c] = true;
-                            count++;
-                        }
-                        break;
-                    }
-                }
-            }
-        }
-        return count; // 0..60
+    // empty squares next to at least one opponent disc
+    private static int potentialMobility(long me, long opp) {
+        long empty = ~(me | opp);
+        return Long.bitCount(empty & BitBoard.neighbours(opp)); // 0..60
     }
 
-    private static int stableDiagApprox(Node n) {
-        PlayerType[][] a = n.getGameView().getCells();
-        PlayerType me = n.getMaxPlayerType(), opp = n.getOtherPlayerType();
+    static int stableDiagApprox(long mine, long theirs) {
         int s = 0;
-        // A1 ↘
-        s += scanDiag(a, me, opp, 0, 0, +1, +1);
-        // A8 ↗
-        s += scanDiag(a, me, opp, 7, 0, -1, +1);
-        // H1 ↖
-        s += scanDiag(a, me, opp, 0, 7, +1, -1);
-        // H8 ↙
-        s += scanDiag(a, me, opp, 7, 7, -1, -1);
-        return s;
-    }
-
-    private static int scanDiag(PlayerType[][] a, PlayerType me, PlayerType opp,
-            int sr, int sc, int dr, int dc) {
-        PlayerType corner = a[sr][sc];
-        if (corner == null)
-            return 0;
-        int score = 0, r = sr, c = sc;
-        if (corner == me) {
-            while (r >= 0 && r < 8 && c >= 0 && c < 8 && a[r][c] == me) {
-                score += 3;
-                r += dr;
-                c += dc;
-            }
-        } else {
-            while (r >= 0 && r < 8 && c >= 0 && c < 8 && a[r][c] == opp) {
-                score -= 3;
-                r += dr;
-                c += dc;
-            }
+        for (int[] ray : DIAG_RAYS) {
+            s += scanRay(mine, theirs, ray);
         }
-        return score;
+        return s;
     }
 
 }
@@ -0,0 +1,113 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Keeps the material-like terms of Heuristics (open tiles, disc difference, corner difference
+ * and PST score, all from MAX's perspective) up to date as moves are made and unmade, so a leaf
+ * evaluation only has to recompute mobility, potential mobility, corner adjacency and edges.
+ *
+ * evaluate() returns exactly Heuristics.calculateHeuristicValue(mine, theirs) for the same board
+ * (with the evaluator's weights).
+ */
+public final class IncrementalEvaluator
+        extends Object {
+
+    private int numOpenTiles;
+    private int discDiff;
+    private int cornerDiff;
+    private int pst;
+    private final Heuristics.Weights weights;
+
+    // values before the move made from each ply
+    private final int[] discDiffStack;
+    private final int[] cornerDiffStack;
+    private final int[] pstStack;
+
+    public IncrementalEvaluator(final int maxPly) {
+        this(maxPly, Heuristics.Weights.DEFAULT);
+    }
+
+    public IncrementalEvaluator(final int maxPly, final Heuristics.Weights weights) {
+        this.weights = weights;
+        this.discDiffStack = new int[maxPly];
+        this.cornerDiffStack = new int[maxPly];
+        this.pstStack = new int[maxPly];
+    }
+
+    public void reset(final long mine, final long theirs) {
+        this.numOpenTiles = 64 - Long.bitCount(mine | theirs);
+        this.discDiff = Long.bitCount(mine) - Long.bitCount(theirs);
+        this.cornerDiff = Long.bitCount(mine & BitBoard.CORNERS) - Long.bitCount(theirs & BitBoard.CORNERS);
+        this.pst = 0;
+        for (long m = mine; m != 0L; m &= m - 1) {
+            this.pst += Heuristics.squareWeight(Long.numberOfTrailingZeros(m));
+        }
+        for (long t = theirs; t != 0L; t &= t - 1) {
+            this.pst -= Heuristics.squareWeight(Long.numberOfTrailingZeros(t));
+        }
+    }
+
+    public void make(final int ply, final boolean maxMoved, final int square, final long flipped) {
+        this.discDiffStack[ply] = this.discDiff;
+        this.cornerDiffStack[ply] = this.cornerDiff;
+        this.pstStack[ply] = this.pst;
+        if (square == BitBoard.PASS) {
+            return;
+        }
+        int sign = maxMoved ? 1 : -1;
+        this.numOpenTiles--;
+        this.discDiff += sign * (1 + 2 * Long.bitCount(flipped));
+        // corners can never be flipped, so only the placed disc matters
+        if ((BitBoard.CORNERS & (1L << square)) != 0L) {
+            this.cornerDiff += sign;
+        }
+        this.pst += sign * pstGain(square, flipped);
+    }
+
+    public void unmake(final int ply, final int square) {
+        this.discDiff = this.discDiffStack[ply];
+        this.cornerDiff = this.cornerDiffStack[ply];
+        this.pst = this.pstStack[ply];
+        if (square != BitBoard.PASS) {
+            this.numOpenTiles++;
+        }
+    }
+
+    // Heuristics value of the current board (mine/theirs must be the board this evaluator tracks)
+    public double evaluate(final long mine, final long theirs) {
+        return Heuristics.calculateHeuristicValue(mine, theirs,
+                this.numOpenTiles, this.discDiff, this.cornerDiff, this.pst, this.weights);
+    }
+
+    // Heuristics value of the child reached by the side to move playing square (flipping flipped),
+    // without making the move; childMine/childTheirs are that child's discs
+    public double evaluateChild(final long childMine, final long childTheirs, final boolean maxMoved,
+            final int square, final long flipped) {
+        int sign = maxMoved ? 1 : -1;
+        int childCornerDiff = this.cornerDiff;
+        if ((BitBoard.CORNERS & (1L << square)) != 0L) {
+            childCornerDiff += sign;
+        }
+        return Heuristics.calculateHeuristicValue(childMine, childTheirs,
+                this.numOpenTiles - 1,
+                this.discDiff + sign * (1 + 2 * Long.bitCount(flipped)),
+                childCornerDiff,
+                this.pst + sign * pstGain(square, flipped),
+                this.weights);
+    }
+
+    // PST swing for the mover: the placed disc, plus every flipped disc counted twice (lost by the
+    // opponent and gained by the mover)
+    private static int pstGain(final int square, final long flipped) {
+        int gain = Heuristics.squareWeight(square);
+        for (long f = flipped; f != 0L; f &= f - 1) {
+            gain += 2 * Heuristics.squareWeight(Long.numberOfTrailingZeros(f));
+        }
+        return gain;
+    }
+
+}
@@ -0,0 +1,439 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.Symmetry;
+
+/**
+ * Pattern-table evaluation: the value of a position is the sum of one learned weight per pattern
+ * instance, looked up by the contents of the instance's squares, in the weight table of the
+ * position's game phase. Weights come from PatternTrainer (least squares on self-play results).
+ *
+ * Each pattern type is defined once by a list of squares; its instances are the distinct images
+ * of that list under the 8 board symmetries, and all instances of a type share its weights. The
+ * index of an instance is its squares read as a base-3 number (empty 0, player 1, opponent 2),
+ * first square least significant. The value is from the point of view of the side to move, in
+ * discs. BIAS has no squares and gives each phase a constant (the tempo of being on move).
+ *
+ * Rather than walking every instance's squares, evaluate() maps the board back through each
+ * symmetry once (Symmetry.inverse) and reads the base instances off it: rows are whole bytes and
+ * diagonals are gathered into a byte with one multiply, then TERNARY turns the player's and
+ * opponent's bytes into the base-3 index.
+ *
+ * Weight file: gzip of int MAGIC, int PHASES, int PHASE_SIZE, then PHASES * PHASE_SIZE shorts
+ * (phase-major, types in TYPES order), in units of 1 / WEIGHT_SCALE discs.
+ */
+public final class PatternEvaluator
+        extends Object {
+
+    public static final int MAGIC = 0x4F505731; // "OPW1"
+    // relative to the directory the game is launched from; -Dothello.patterns overrides it
+    public static final String DEFAULT_PATH = "data/othello/patterns.weights";
+    // phases by number of discs on the board: 4-13, 14-23, ..., 54-64
+    public static final int PHASES = 6;
+    public static final int DISCS_PER_PHASE = 10;
+    public static final int WEIGHT_SCALE = 128;
+
+    // pattern types, indices into TYPES
+    private static final int EDGE_2X = 0;
+    private static final int CORNER_2X5 = 1;
+    private static final int CORNER_3X3 = 2;
+    private static final int LINE_2 = 3;
+    private static final int LINE_4 = 5;
+    private static final int DIAG_8 = 6;
+    private static final int DIAG_4 = 10;
+    private static final int BIAS = 11;
+
+    // base instance of every pattern type, as (row * 8 + col) squares
+    private static final int[][] TYPES = {
+            squares(0, 0, 0, 1, 8, 9, 14), // EDGE_2X: edge row plus both X squares
+            block(0, 0, 2, 5), // CORNER_2X5
+            block(0, 0, 3, 3), // CORNER_3X3
+            squares(1, 0, 0, 1, 8), // LINE_2
+            squares(2, 0, 0, 1, 8), // LINE_3
+            squares(3, 0, 0, 1, 8), // LINE_4
+            squares(0, 0, 1, 1, 8), // DIAG_8
+            squares(0, 1, 1, 1, 7), // DIAG_7
+            squares(0, 2, 1, 1, 6), // DIAG_6
+            squares(0, 3, 1, 1, 5), // DIAG_5
+            squares(0, 4, 1, 1, 4), // DIAG_4
+            new int[0] // BIAS
+    };
+
+    public static final int TYPE_COUNT = TYPES.length;
+    // first weight of each type within a phase
+    private static final int[] TYPE_OFFSET = new int[TYPE_COUNT];
+    public static final int PHASE_SIZE;
+    // types with an instance under each symmetry, as bit masks (bit t = type t)
+    private static final int[] SYMMETRY_TYPES = new int[Symmetry.COUNT];
+    public static final int INSTANCE_COUNT;
+    // for PatternFeatures: SQUARE_UPDATES[SQUARE_START[sq] .. SQUARE_START[sq + 1]) are the
+    // instances that read square sq, each packed as instance | (power of 3 of sq's digit) << 8
+    static final int[] SQUARE_START = new int[65];
+    static final int[] SQUARE_UPDATES;
+
+    // TERNARY[b] = sum of 3^i over the set bits i of b; Stability indexes its edge table with it too
+    static final int[] TERNARY = new int[256];
+
+    // DIAGONALS[c] = squares (i, i + c) for i = 0..7-c
+    private static final long[] DIAGONALS = new long[8];
+    // gathers a DIAGONALS[c] board into bits c..7 of the top byte; see diagonal()
+    private static final long GATHER = 0x0101010101010101L;
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < 8; i++) {
+                if ((b & (1 << i)) != 0) {
+                    TERNARY[b] += pow3(i);
+                }
+            }
+        }
+        for (int c = 0; c < 8; c++) {
+            for (int i = 0; i + c < 8; i++) {
+                DIAGONALS[c] |= 1L << (9 * i + c);
+            }
+        }
+        int size = 0;
+        int instances = 0;
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            TYPE_OFFSET[type] = size;
+            size += pow3(TYPES[type].length);
+            List<Long> seen = new ArrayList<Long>();
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                long mask = 0L;
+                for (int sq : TYPES[type]) {
+                    mask |= 1L << Symmetry.transformSquare(sq, s);
+                }
+                // an image covering the same squares (in another order) is the same instance
+                if (!seen.contains(mask)) {
+                    seen.add(mask);
+                    SYMMETRY_TYPES[s] |= 1 << type;
+                    instances++;
+                }
+            }
+        }
+        PHASE_SIZE = size;
+        INSTANCE_COUNT = instances;
+
+        // for every square, the instances (in features() order) that read it
+        List<List<Integer>> bySquare = new ArrayList<List<Integer>>();
+        for (int sq = 0; sq < 64; sq++) {
+            bySquare.add(new ArrayList<Integer>());
+        }
+        int k = 0;
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            for (int types = SYMMETRY_TYPES[s]; types != 0; types &= types - 1) {
+                int type = Integer.numberOfTrailingZeros(types);
+                for (int i = 0; i < TYPES[type].length; i++) {
+                    bySquare.get(Symmetry.transformSquare(TYPES[type][i], s)).add(k | (pow3(i) << 8));
+                }
+                k++;
+            }
+        }
+        List<Integer> updates = new ArrayList<Integer>();
+        for (int sq = 0; sq < 64; sq++) {
+            updates.addAll(bySquare.get(sq));
+            SQUARE_START[sq + 1] = updates.size();
+        }
+        SQUARE_UPDATES = updates.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final short[] weights;
+    // the same weights indexed with player and opponent digits exchanged, so features kept from
+    // one side's point of view can be scored for the other side
+    private final short[] swapped;
+
+    public PatternEvaluator(final short[] weights) {
+        if (weights.length != PHASES * PHASE_SIZE) {
+            throw new IllegalArgumentException("expected " + PHASES * PHASE_SIZE + " weights, got " + weights.length);
+        }
+        this.weights = weights;
+        this.swapped = new short[weights.length];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            for (int index = 0; index < pow3(TYPES[type].length); index++) {
+                int other = 0;
+                int rest = index;
+                for (int i = 0; i < TYPES[type].length; i++) {
+                    other += ((3 - rest % 3) % 3) * pow3(i);
+                    rest /= 3;
+                }
+                for (int phase = 0; phase < PHASES; phase++) {
+                    int base = phase * PHASE_SIZE + TYPE_OFFSET[type];
+                    this.swapped[base + index] = weights[base + other];
+                }
+            }
+        }
+    }
+
+    public static PatternEvaluator load(final Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC || in.readInt() != PHASES || in.readInt() != PHASE_SIZE) {
+                throw new IOException(path + " is not a weight file for these patterns");
+            }
+            short[] weights = new short[PHASES * PHASE_SIZE];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = in.readShort();
+            }
+            return new PatternEvaluator(weights);
+        } catch (EOFException e) {
+            throw new IOException(path + " is truncated");
+        }
+    }
+
+    // loads DEFAULT_PATH (or -Dothello.patterns); null if there are no usable weights
+    public static PatternEvaluator loadDefault() {
+        return loadDefault(System.getProperties());
+    }
+
+    // same, with othello.patterns taken from config
+    public static PatternEvaluator loadDefault(final Properties config) {
+        Path path = Path.of(config.getProperty("othello.patterns", DEFAULT_PATH));
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        try {
+            return load(path);
+        } catch (IOException e) {
+            System.err.println("Warning: could not load pattern weights: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static void write(final OutputStream out, final short[] weights) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(gzip);
+        data.writeInt(MAGIC);
+        data.writeInt(PHASES);
+        data.writeInt(PHASE_SIZE);
+        for (short w : weights) {
+            data.writeShort(w);
+        }
+        data.flush();
+        gzip.finish();
+    }
+
+    public static int phase(final long player, final long opponent) {
+        return Math.min(PHASES - 1, (Long.bitCount(player | opponent) - 4) / DISCS_PER_PHASE);
+    }
+
+    // fills features[0 .. INSTANCE_COUNT) with the weight index (within a phase) of every instance
+    public static void features(final long player, final long opponent, final int[] features) {
+        int k = 0;
+        for (int s = 0; s < Symmetry.COUNT; s++) {
+            long p = Symmetry.inverse(player, s);
+            long o = Symmetry.inverse(opponent, s);
+            for (int types = SYMMETRY_TYPES[s]; types != 0; types &= types - 1) {
+                int type = Integer.numberOfTrailingZeros(types);
+                features[k++] = TYPE_OFFSET[type] + index(type, p, o);
+            }
+        }
+    }
+
+    // value for player, who is to move, in discs, from features(player, opponent) (swapped = false)
+    // or features(opponent, player) (swapped = true)
+    double evaluateFeatures(final int[] features, final int from, final int phase, final boolean swapped) {
+        final short[] w = swapped ? this.swapped : this.weights;
+        final int base = phase * PHASE_SIZE;
+        int sum = 0;
+        for (int k = 0; k < INSTANCE_COUNT; k++) {
+            sum += w[base + features[from + k]];
+        }
+        return Math.max(-64.0, Math.min(64.0, (double) sum / WEIGHT_SCALE));
+    }
+
+    // value for player, who is to move, in discs
+    public double evaluate(final long player, final long opponent) {
+        final short[] w = this.weights;
+        final int base = phase(player, opponent) * PHASE_SIZE;
+        // the 8 orientations from one transpose and mirrors (Symmetry.inverse(x, s) for each s)
+        long pc = Symmetry.mirrorCols(player);
+        long oc = Symmetry.mirrorCols(opponent);
+        long pt = Symmetry.transpose(player);
+        long ot = Symmetry.transpose(opponent);
+        long ptc = Symmetry.mirrorCols(pt);
+        long otc = Symmetry.mirrorCols(ot);
+        int sum = w[base + TYPE_OFFSET[BIAS]]
+                + instances(w, base, SYMMETRY_TYPES[0], player, opponent)
+                + instances(w, base, SYMMETRY_TYPES[1], pc, oc)
+                + instances(w, base, SYMMETRY_TYPES[2], Symmetry.mirrorRows(player), Symmetry.mirrorRows(opponent))
+                + instances(w, base, SYMMETRY_TYPES[3], Symmetry.mirrorRows(pc), Symmetry.mirrorRows(oc))
+                + instances(w, base, SYMMETRY_TYPES[4], pt, ot)
+                + instances(w, base, SYMMETRY_TYPES[5], Symmetry.mirrorRows(pt), Symmetry.mirrorRows(ot))
+                + instances(w, base, SYMMETRY_TYPES[6], ptc, otc)
+                + instances(w, base, SYMMETRY_TYPES[7], Symmetry.mirrorRows(ptc), Symmetry.mirrorRows(otc));
+        return Math.max(-64.0, Math.min(64.0, (double) sum / WEIGHT_SCALE));
+    }
+
+    // sum of the weights of the base instances of types (a SYMMETRY_TYPES mask, BIAS excluded) on
+    // (p, o). The same indices as index(), unrolled: the switch there costs about a third more.
+    private static int instances(final short[] w, final int base, final int types, final long p, final long o) {
+        int sum = 0;
+        if ((types & (1 << EDGE_2X)) != 0) {
+            sum += w[base + TYPE_OFFSET[EDGE_2X] + row(p, o, 0, 0xFF) + 6561 * (bit(p, o, 9) + 3 * bit(p, o, 14))];
+        }
+        if ((types & (1 << CORNER_2X5)) != 0) {
+            sum += w[base + TYPE_OFFSET[CORNER_2X5] + row(p, o, 0, 0x1F) + 243 * row(p, o, 1, 0x1F)];
+        }
+        if ((types & (1 << CORNER_3X3)) != 0) {
+            sum += w[base + TYPE_OFFSET[CORNER_3X3] + row(p, o, 0, 0x7) + 27 * row(p, o, 1, 0x7)
+                    + 729 * row(p, o, 2, 0x7)];
+        }
+        for (int type = LINE_2; type <= LINE_4; type++) {
+            if ((types & (1 << type)) != 0) {
+                sum += w[base + TYPE_OFFSET[type] + row(p, o, type - LINE_2 + 1, 0xFF)];
+            }
+        }
+        for (int type = DIAG_8; type <= DIAG_4; type++) {
+            if ((types & (1 << type)) != 0) {
+                sum += w[base + TYPE_OFFSET[type] + diagonal(p, o, type - DIAG_8)];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * For every weight index within a phase, the smallest index that reads the same squares in
+     * another order (a symmetry that maps a type's base instance onto itself, like mirroring an
+     * edge). PatternTrainer ties those weights together, which keeps evaluate() symmetric: a board
+     * and its mirror image read some instances in opposite directions.
+     */
+    static int[] tiedIndices() {
+        int[] tied = new int[PHASE_SIZE];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            int[] base = TYPES[type];
+            long mask = 0L;
+            for (int sq : base) {
+                mask |= 1L << sq;
+            }
+            // position each square of the base instance moves to under every self-mapping symmetry
+            List<int[]> permutations = new ArrayList<int[]>();
+            for (int s = 0; s < Symmetry.COUNT; s++) {
+                int[] perm = new int[base.length];
+                long image = 0L;
+                for (int i = 0; i < base.length; i++) {
+                    int sq = Symmetry.transformSquare(base[i], s);
+                    image |= 1L << sq;
+                    for (int j = 0; j < base.length; j++) {
+                        if (base[j] == sq) {
+                            perm[i] = j;
+                        }
+                    }
+                }
+                if (image == mask) {
+                    permutations.add(perm);
+                }
+            }
+            for (int index = 0; index < pow3(base.length); index++) {
+                int best = index;
+                for (int[] perm : permutations) {
+                    int permuted = 0;
+                    int rest = index;
+                    for (int i = 0; i < base.length; i++) {
+                        permuted += (rest % 3) * pow3(perm[i]);
+                        rest /= 3;
+                    }
+                    best = Math.min(best, permuted);
+                }
+                tied[TYPE_OFFSET[type] + index] = TYPE_OFFSET[type] + best;
+            }
+        }
+        return tied;
+    }
+
+    public final short[] getWeights() {
+        return Arrays.copyOf(this.weights, this.weights.length);
+    }
+
+    // index of the base instance of type on (p, o); must read the squares in TYPES order
+    private static int index(final int type, final long p, final long o) {
+        switch (type) {
+            case 0: // EDGE_2X
+                return row(p, o, 0, 0xFF) + 6561 * (bit(p, o, 9) + 3 * bit(p, o, 14));
+            case 1: // CORNER_2X5
+                return row(p, o, 0, 0x1F) + 243 * row(p, o, 1, 0x1F);
+            case 2: // CORNER_3X3
+                return row(p, o, 0, 0x7) + 27 * row(p, o, 1, 0x7) + 729 * row(p, o, 2, 0x7);
+            case 3: // LINE_2
+                return row(p, o, 1, 0xFF);
+            case 4: // LINE_3
+                return row(p, o, 2, 0xFF);
+            case 5: // LINE_4
+                return row(p, o, 3, 0xFF);
+            case 6: // DIAG_8
+                return diagonal(p, o, 0);
+            case 7: // DIAG_7
+                return diagonal(p, o, 1);
+            case 8: // DIAG_6
+                return diagonal(p, o, 2);
+            case 9: // DIAG_5
+                return diagonal(p, o, 3);
+            case 10: // DIAG_4
+                return diagonal(p, o, 4);
+            default: // BIAS
+                return 0;
+        }
+    }
+
+    private static int bit(final long p, final long o, final int sq) {
+        return (int) ((p >>> sq) & 1L) + 2 * (int) ((o >>> sq) & 1L);
+    }
+
+    // the masked squares of a row, leftmost first
+    private static int row(final long p, final long o, final int row, final int mask) {
+        return TERNARY[(int) (p >>> (8 * row)) & mask] + 2 * TERNARY[(int) (o >>> (8 * row)) & mask];
+    }
+
+    // squares (i, i + c) for i = 0..7-c. Multiplying by GATHER moves square 9i + c to bit 56 + i + c
+    // without overlaps or carries, so the top byte shifted down by c holds square i in bit i.
+    private static int diagonal(final long p, final long o, final int c) {
+        int pb = (int) (((p & DIAGONALS[c]) * GATHER) >>> (56 + c));
+        int ob = (int) (((o & DIAGONALS[c]) * GATHER) >>> (56 + c));
+        return TERNARY[pb] + 2 * TERNARY[ob];
+    }
+
+    private static int pow3(final int n) {
+        int p = 1;
+        for (int i = 0; i < n; i++) {
+            p *= 3;
+        }
+        return p;
+    }
+
+    // length squares from (row, col) in steps of (dRow, dCol), followed by extra
+    private static int[] squares(final int row, final int col, final int dRow, final int dCol, final int length,
+            final int... extra) {
+        int[] out = new int[length + extra.length];
+        for (int i = 0; i < length; i++) {
+            out[i] = (row + i * dRow) * 8 + (col + i * dCol);
+        }
+        System.arraycopy(extra, 0, out, length, extra.length);
+        return out;
+    }
+
+    private static int[] block(final int row, final int col, final int rows, final int cols) {
+        int[] out = new int[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                out[r * cols + c] = (row + r) * 8 + (col + c);
+            }
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,70 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Keeps the PatternEvaluator indices of every pattern instance up to date as moves are made and
+ * unmade, so a leaf evaluation is just INSTANCE_COUNT table lookups.
+ *
+ * Indices are kept from MAX's point of view (digit 1 = MAX disc, 2 = MIN disc); when MIN is to
+ * move they are scored with the evaluator's swapped weights. evaluate() returns exactly
+ * PatternEvaluator.evaluate for the same board, turned into MAX's point of view.
+ */
+public final class PatternFeatures
+        extends Object {
+
+    private final PatternEvaluator patterns;
+    // indices at each ply, INSTANCE_COUNT per ply; ply p's block is the position at ply p
+    private final int[] features;
+    private int from = 0;
+
+    public PatternFeatures(final PatternEvaluator patterns, final int maxPly) {
+        this.patterns = patterns;
+        this.features = new int[(maxPly + 1) * PatternEvaluator.INSTANCE_COUNT];
+    }
+
+    public void reset(final long mine, final long theirs) {
+        this.from = 0;
+        int[] scratch = new int[PatternEvaluator.INSTANCE_COUNT];
+        PatternEvaluator.features(mine, theirs, scratch);
+        System.arraycopy(scratch, 0, this.features, 0, scratch.length);
+    }
+
+    // the position at ply + 1 is the one at ply with the move applied
+    public void make(final int ply, final boolean maxMoved, final int square, final long flipped) {
+        int n = PatternEvaluator.INSTANCE_COUNT;
+        this.from = (ply + 1) * n;
+        System.arraycopy(this.features, ply * n, this.features, this.from, n);
+        if (square == BitBoard.PASS) {
+            return;
+        }
+        this.add(square, maxMoved ? 1 : 2);
+        // a flipped disc goes from 2 to 1 when MAX moved, from 1 to 2 when MIN moved
+        int delta = maxMoved ? -1 : 1;
+        for (long f = flipped; f != 0L; f &= f - 1) {
+            this.add(Long.numberOfTrailingZeros(f), delta);
+        }
+    }
+
+    public void unmake(final int ply) {
+        this.from = ply * PatternEvaluator.INSTANCE_COUNT;
+    }
+
+    // value from MAX's point of view of the current board (which must be mine/theirs)
+    public double evaluate(final long mine, final long theirs, final boolean maxToMove) {
+        int phase = PatternEvaluator.phase(mine, theirs);
+        double value = this.patterns.evaluateFeatures(this.features, this.from, phase, !maxToMove);
+        return maxToMove ? value : -value;
+    }
+
+    private void add(final int square, final int digit) {
+        final int[] updates = PatternEvaluator.SQUARE_UPDATES;
+        for (int i = PatternEvaluator.SQUARE_START[square]; i < PatternEvaluator.SQUARE_START[square + 1]; i++) {
+            this.features[this.from + (updates[i] & 0xFF)] += digit * (updates[i] >>> 8);
+        }
+    }
+
+}
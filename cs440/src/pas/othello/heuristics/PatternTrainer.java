@@ -0,0 +1,269 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.PlayerType;
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.endgame.EndgameSolver;
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Offline trainer for PatternEvaluator weights.
+ *
+ * Self-play: each game opens with a random number (up to randomPlies) of random moves, then
+ * OthelloAgent plays both sides at a fixed depth until SOLVE_EMPTIES, after which EndgameSolver
+ * plays perfectly. Every position from the last random move on is labelled with the game's final
+ * disc differential from its mover's point of view (exact once the solver has taken over).
+ *
+ * Fitting: per phase, ridge-regularised least squares (sum over positions of (sum of the position's
+ * pattern weights - label)^2 + ridge * |w|^2), solved with conjugate gradient on the normal
+ * equations. Weights that read the same squares in another order are fitted as one (see
+ * PatternEvaluator.tiedIndices). A tenth of the positions is held out to report the test error.
+ *
+ * The agent evaluates with whatever -Dothello.eval/-Dothello.patterns select, so weights can be
+ * bootstrapped: train once from games played with Heuristics, then again from games played with
+ * the first weights. The shipped weights are the second round of
+ * java -cp "lib/*:." src.pas.othello.heuristics.PatternTrainer 20000 4 20 32 1 first.weights
+ * java -Dothello.eval=pattern -Dothello.patterns=first.weights -cp "lib/*:." \
+ *     src.pas.othello.heuristics.PatternTrainer 20000 4 20 32 2 data/othello/patterns.weights
+ *
+ * usage: PatternTrainer [games] [depth] [randomPlies] [ridge] [seed] [output]
+ */
+public final class PatternTrainer
+        extends Object {
+
+    public static final int SOLVE_EMPTIES = 14;
+    public static final int CG_ITERATIONS = 200;
+
+    // positions of one phase, features flattened INSTANCE_COUNT per position
+    private static final class Samples
+            extends Object {
+        private int[] features = new int[1 << 16];
+        private float[] labels = new float[1 << 10];
+        private int size = 0;
+
+        private void add(final int[] f, final float label) {
+            if ((this.size + 1) * f.length > this.features.length) {
+                this.features = Arrays.copyOf(this.features, 2 * this.features.length);
+            }
+            if (this.size == this.labels.length) {
+                this.labels = Arrays.copyOf(this.labels, 2 * this.labels.length);
+            }
+            System.arraycopy(f, 0, this.features, this.size * f.length, f.length);
+            this.labels[this.size++] = label;
+        }
+    }
+
+    private final OthelloAgent agent;
+    private final EndgameSolver solver;
+    private final int depth;
+    private final int randomPlies;
+    private final Random random;
+    private final Samples[] train = new Samples[PatternEvaluator.PHASES];
+    private final Samples[] test = new Samples[PatternEvaluator.PHASES];
+    private final int[] scratch = new int[PatternEvaluator.INSTANCE_COUNT];
+    private final int[] tied = PatternEvaluator.tiedIndices();
+
+    public PatternTrainer(final int depth, final int randomPlies, final long seed) {
+        // the agent is only used for its search; player type and move time do not matter here
+        this.agent = new OthelloAgent(PlayerType.BLACK, 0L, OthelloAgent.SearchMode.PVS);
+        this.solver = new EndgameSolver(OthelloAgent.ENDGAME_TABLE_BITS);
+        this.depth = depth;
+        this.randomPlies = randomPlies;
+        this.random = new Random(seed);
+        for (int p = 0; p < PatternEvaluator.PHASES; p++) {
+            this.train[p] = new Samples();
+            this.test[p] = new Samples();
+        }
+    }
+
+    public int size() {
+        int n = 0;
+        for (int p = 0; p < PatternEvaluator.PHASES; p++) {
+            n += this.train[p].size + this.test[p].size;
+        }
+        return n;
+    }
+
+    public void playGame() {
+        long[] position = BitBoard.startPosition();
+        int random = this.random.nextInt(this.randomPlies + 1);
+        // positions worth labelling, and whether the side to move in each is the one that moves first
+        List<long[]> positions = new ArrayList<long[]>();
+        List<Boolean> firstToMove = new ArrayList<Boolean>();
+        boolean first = true;
+        for (int ply = 0; ; ply++) {
+            long player = position[0];
+            long opponent = position[1];
+            long moves = BitBoard.legalMoves(player, opponent);
+            if (moves == 0L) {
+                if (BitBoard.legalMoves(opponent, player) == 0L) {
+                    break;
+                }
+                BitBoard.pass(position);
+                first = !first;
+                continue;
+            }
+            int move;
+            if (ply < random) {
+                move = BitBoard.randomMove(moves, this.random);
+            } else {
+                positions.add(position.clone());
+                firstToMove.add(first);
+                if (Long.bitCount(~(player | opponent)) <= SOLVE_EMPTIES) {
+                    move = this.solver.solveRoot(player, opponent, () -> false);
+                } else {
+                    move = this.agent.searchFixedDepth(new BitBoard(player, opponent, true, BitBoard.PASS, 0),
+                            this.depth);
+                }
+            }
+            BitBoard.play(position, move);
+            first = !first;
+        }
+        // final score for the side that was to move at the end (same convention as EndgameSolver)
+        int result = (position[1] == 0L) ? 64
+                : (position[0] == 0L) ? -64
+                        : Long.bitCount(position[0]) - Long.bitCount(position[1]);
+        boolean holdOut = this.random.nextInt(10) == 0;
+        for (int i = 0; i < positions.size(); i++) {
+            long[] pos = positions.get(i);
+            PatternEvaluator.features(pos[0], pos[1], this.scratch);
+            for (int f = 0; f < this.scratch.length; f++) {
+                this.scratch[f] = this.tied[this.scratch[f]];
+            }
+            int phase = PatternEvaluator.phase(pos[0], pos[1]);
+            float label = (firstToMove.get(i) == first) ? result : -result;
+            (holdOut ? this.test : this.train)[phase].add(this.scratch, label);
+        }
+    }
+
+    // fits every phase and returns the weights in PatternEvaluator's layout
+    public short[] fit(final double ridge) {
+        short[] weights = new short[PatternEvaluator.PHASES * PatternEvaluator.PHASE_SIZE];
+        for (int p = 0; p < PatternEvaluator.PHASES; p++) {
+            double[] w = solve(this.train[p], ridge);
+            for (int i = 0; i < w.length; i++) {
+                long q = Math.round(w[this.tied[i]] * PatternEvaluator.WEIGHT_SCALE);
+                weights[p * PatternEvaluator.PHASE_SIZE + i] =
+                        (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+            }
+            System.out.printf("phase %d: %d train, %d test, rmse train %.2f test %.2f%n", p,
+                    this.train[p].size, this.test[p].size, rmse(this.train[p], w), rmse(this.test[p], w));
+        }
+        return weights;
+    }
+
+    // conjugate gradient on (A^T A + ridge I) w = A^T y
+    private static double[] solve(final Samples s, final double ridge) {
+        int n = PatternEvaluator.PHASE_SIZE;
+        double[] w = new double[n];
+        double[] r = new double[n];
+        multiplyTransposed(s, s.labels, r);
+        double[] d = r.clone();
+        double[] q = new double[n];
+        float[] ad = new float[s.size];
+        double rr = dot(r, r);
+        for (int iter = 0; iter < CG_ITERATIONS && rr > 1e-9; iter++) {
+            // q = (A^T A + ridge I) d
+            multiply(s, d, ad);
+            multiplyTransposed(s, ad, q);
+            for (int i = 0; i < n; i++) {
+                q[i] += ridge * d[i];
+            }
+            double step = rr / dot(d, q);
+            for (int i = 0; i < n; i++) {
+                w[i] += step * d[i];
+                r[i] -= step * q[i];
+            }
+            double rrNext = dot(r, r);
+            for (int i = 0; i < n; i++) {
+                d[i] = r[i] + (rrNext / rr) * d[i];
+            }
+            rr = rrNext;
+        }
+        return w;
+    }
+
+    // out = A x
+    private static void multiply(final Samples s, final double[] x, final float[] out) {
+        int k = PatternEvaluator.INSTANCE_COUNT;
+        for (int i = 0; i < s.size; i++) {
+            double sum = 0.0;
+            for (int j = i * k; j < (i + 1) * k; j++) {
+                sum += x[s.features[j]];
+            }
+            out[i] = (float) sum;
+        }
+    }
+
+    // out = A^T y
+    private static void multiplyTransposed(final Samples s, final float[] y, final double[] out) {
+        Arrays.fill(out, 0.0);
+        int k = PatternEvaluator.INSTANCE_COUNT;
+        for (int i = 0; i < s.size; i++) {
+            for (int j = i * k; j < (i + 1) * k; j++) {
+                out[s.features[j]] += y[i];
+            }
+        }
+    }
+
+    private static double dot(final double[] a, final double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double rmse(final Samples s, final double[] w) {
+        if (s.size == 0) {
+            return 0.0;
+        }
+        float[] predicted = new float[s.size];
+        multiply(s, w, predicted);
+        double sum = 0.0;
+        for (int i = 0; i < s.size; i++) {
+            double e = predicted[i] - s.labels[i];
+            sum += e * e;
+        }
+        return Math.sqrt(sum / s.size);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int randomPlies = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+        double ridge = (args.length > 3) ? Double.parseDouble(args[3]) : 32.0;
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1L;
+        Path output = Path.of((args.length > 5) ? args[5] : PatternEvaluator.DEFAULT_PATH);
+
+        PatternTrainer trainer = new PatternTrainer(depth, randomPlies, seed);
+        long t0 = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            trainer.playGame();
+            if ((g + 1) % 500 == 0) {
+                System.out.println("games: " + (g + 1) + " positions: " + trainer.size() +
+                        " elapsed: " + (System.nanoTime() - t0) / 1_000_000_000L + "s");
+            }
+        }
+        short[] weights = trainer.fit(ridge);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            PatternEvaluator.write(out, weights);
+        }
+        System.out.println("wrote " + weights.length + " weights to " + output);
+    }
+
+}
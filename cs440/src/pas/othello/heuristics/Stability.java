@@ -0,0 +1,186 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Stable discs: discs that no sequence of moves can flip.
+ *
+ * Edge discs can only be flipped along their edge, so their stability depends on that edge alone.
+ * EDGE_STABLE holds, for each of the 3^8 edge configurations, the player's discs that stay the
+ * player's whatever is played on the remaining empty edge squares (by either side, in any order,
+ * flipping or not, since a move there may flip through the interior). It is built exactly when the
+ * class loads, working from full edges back to empty ones.
+ *
+ * An interior disc is stable once each of its four lines (row, column, both diagonals) is either
+ * full or has a stable disc of the same colour next to it along that line. Starting from the edge
+ * discs this is propagated over bitboards until nothing changes. Interior discs are a lower bound:
+ * everything reported is stable, but a few stable discs (e.g. ones protected by the opponent's
+ * stable discs) can be missed.
+ */
+public final class Stability
+        extends Object {
+
+    private static final long INTERIOR = 0x007E7E7E7E7E7E00L;
+    private static final long FILE_A = 0x0101010101010101L;
+
+    // the edge's base-3 index (PatternEvaluator.TERNARY) for player and opponent bytes
+    private static final int[] TERNARY = PatternEvaluator.TERNARY;
+    // indexed by TERNARY[player edge] + 2 * TERNARY[opponent edge], bit i = square i of the edge
+    private static final byte[] EDGE_STABLE = new byte[6561];
+    // COLUMN[b]: bit r of b moved to square 8r, the inverse of column()
+    private static final long[] COLUMN = new long[256];
+
+    // FULL_PAD[d][k]: squares whose neighbour 2^(k mod 3) steps away along direction d is off the
+    // board, k < 3 going towards higher squares and k >= 3 towards lower ones. d = 0, 1, 2, 3 are the
+    // row, column, a1-h8 and h1-a8 diagonals (shift 1, 8, 9 and 7)
+    private static final int[] SHIFTS = { 1, 8, 9, 7 };
+    private static final long[][] FULL_PAD = new long[4][6];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int r = 0; r < 8; r++) {
+                COLUMN[b] |= (long) ((b >>> r) & 1) << (8 * r);
+            }
+        }
+        // fullest edges first, so every configuration reachable by one more move is already known
+        for (int occupied = 8; occupied >= 0; occupied--) {
+            for (int p = 0; p < 256; p++) {
+                for (int o = 0; o < 256; o++) {
+                    if ((p & o) == 0 && Integer.bitCount(p | o) == occupied) {
+                        EDGE_STABLE[TERNARY[p] + 2 * TERNARY[o]] = (byte) edgeStable(p, o);
+                    }
+                }
+            }
+        }
+
+        int[][] steps = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+        for (int d = 0; d < 4; d++) {
+            for (int k = 0; k < 6; k++) {
+                int n = (1 << (k % 3)) * ((k < 3) ? 1 : -1);
+                long pad = 0L;
+                for (int s = 0; s < 64; s++) {
+                    int r = (s >>> 3) + n * steps[d][0];
+                    int c = (s & 7) + n * steps[d][1];
+                    if (r < 0 || r > 7 || c < 0 || c > 7) {
+                        pad |= 1L << s;
+                    }
+                }
+                FULL_PAD[d][k] = pad;
+            }
+        }
+    }
+
+    private Stability() {
+    }
+
+    // the player's discs that are still the player's after any single move on an empty edge square,
+    // and (by the table entry of the resulting edge) after everything that can follow it
+    private static int edgeStable(final int player, final int opponent) {
+        int stable = player;
+        int empty = ~(player | opponent) & 0xFF;
+        for (int x = 0; stable != 0 && x < 8; x++) {
+            if ((empty & (1 << x)) != 0) {
+                int flipped = edgeFlips(player, opponent, x);
+                stable &= edge(player | (1 << x) | flipped, opponent & ~flipped);
+                flipped = edgeFlips(opponent, player, x);
+                stable &= edge(player & ~flipped, opponent | (1 << x) | flipped);
+            }
+        }
+        return stable;
+    }
+
+    // discs of opponent flipped along the edge when player moves to x (empty if the run is not capped)
+    private static int edgeFlips(final int player, final int opponent, final int x) {
+        int flipped = 0;
+        for (int dir = -1; dir <= 1; dir += 2) {
+            int run = 0;
+            int y = x + dir;
+            while (y >= 0 && y < 8 && (opponent & (1 << y)) != 0) {
+                run |= 1 << y;
+                y += dir;
+            }
+            if (y >= 0 && y < 8 && (player & (1 << y)) != 0) {
+                flipped |= run;
+            }
+        }
+        return flipped;
+    }
+
+    private static int edge(final long player, final long opponent) {
+        return EDGE_STABLE[TERNARY[(int) player & 0xFF] + 2 * TERNARY[(int) opponent & 0xFF]] & 0xFF;
+    }
+
+    // squares whose whole line along direction d is occupied
+    private static long fullLines(final long occupied, final int d) {
+        int shift = SHIFTS[d];
+        long[] pad = FULL_PAD[d];
+        long up = occupied & ((occupied >>> shift) | pad[0]);
+        up &= (up >>> (2 * shift)) | pad[1];
+        up &= (up >>> (4 * shift)) | pad[2];
+        long down = occupied & ((occupied << shift) | pad[3]);
+        down &= (down << (2 * shift)) | pad[4];
+        down &= (down << (4 * shift)) | pad[5];
+        return up & down;
+    }
+
+    // column 0 (squares 0, 8, ..., 56) packed into a byte, bit r = row r
+    private static long column(final long x) {
+        return ((x & FILE_A) * 0x0102040810204080L) >>> 56;
+    }
+
+    // the player's stable discs on the four edges (exact)
+    private static long stableEdges(final long player, final long opponent) {
+        long rows = edge(player, opponent) | ((long) edge(player >>> 56, opponent >>> 56) << 56);
+        long left = COLUMN[edge(column(player), column(opponent))];
+        long right = COLUMN[edge(column(player >>> 7), column(opponent >>> 7))] << 7;
+        return rows | left | right;
+    }
+
+    // grows stable over the interior discs until no disc can be added
+    private static long propagate(long stable, final long interior,
+            final long row, final long column, final long diagonal, final long antiDiagonal) {
+        stable |= interior & row & column & diagonal & antiDiagonal;
+        if (stable == 0L) {
+            return 0L;
+        }
+        // interior discs only: their neighbours are real neighbours, so the shifts cannot wrap
+        long previous;
+        do {
+            previous = stable;
+            long r = (stable >>> 1) | (stable << 1) | row;
+            long c = (stable >>> 8) | (stable << 8) | column;
+            long d = (stable >>> 9) | (stable << 9) | diagonal;
+            long a = (stable >>> 7) | (stable << 7) | antiDiagonal;
+            stable |= interior & r & c & d & a;
+        } while (stable != previous);
+        return stable;
+    }
+
+    // the player's stable discs
+    public static long stableDiscs(final long player, final long opponent) {
+        long occupied = player | opponent;
+        return propagate(stableEdges(player, opponent), player & INTERIOR, fullLines(occupied, 0), fullLines(occupied, 1),
+                fullLines(occupied, 2), fullLines(occupied, 3));
+    }
+
+    public static int stableCount(final long player, final long opponent) {
+        return Long.bitCount(stableDiscs(player, opponent));
+    }
+
+    // stable disc difference, player minus opponent; shares the full lines between the two sides, so
+    // it is cheaper than two stableCount calls
+    public static int stableDifference(final long player, final long opponent) {
+        long occupied = player | opponent;
+        long row = fullLines(occupied, 0);
+        long column = fullLines(occupied, 1);
+        long diagonal = fullLines(occupied, 2);
+        long antiDiagonal = fullLines(occupied, 3);
+        return Long.bitCount(propagate(stableEdges(player, opponent), player & INTERIOR,
+                row, column, diagonal, antiDiagonal))
+                - Long.bitCount(propagate(stableEdges(opponent, player), opponent & INTERIOR,
+                        row, column, diagonal, antiDiagonal));
+    }
+
+}
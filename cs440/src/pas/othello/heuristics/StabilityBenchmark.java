@@ -0,0 +1,137 @@
+package src.pas.othello.heuristics;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Micro-benchmark of Stability.stableDifference against the corner-run approximation it replaced in
+ * Heuristics (stableEdgeApprox + stableDiagApprox). Positions are taken from random games, so every
+ * phase is represented; each method is timed over the whole set several times after a warm-up, and
+ * the average number of stable discs each one finds is printed alongside.
+ *
+ * usage: StabilityBenchmark [games] [rounds] [seed]
+ * e.g. java -cp "lib/*:." src.pas.othello.heuristics.StabilityBenchmark 2000 20 1
+ */
+public final class StabilityBenchmark
+        extends Object {
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private StabilityBenchmark() {
+    }
+
+    // every position of the given number of random games, flattened (player, opponent) pairs
+    private static long[] positions(final int games, final Random random) {
+        long[] positions = new long[games * 2 * 64];
+        int n = 0;
+        for (int g = 0; g < games; g++) {
+            long[] position = BitBoard.startPosition();
+            while (true) {
+                long moves = BitBoard.legalMoves(position[0], position[1]);
+                if (moves == 0L) {
+                    if (BitBoard.legalMoves(position[1], position[0]) == 0L) {
+                        break;
+                    }
+                    BitBoard.pass(position);
+                    continue;
+                }
+                positions[n++] = position[0];
+                positions[n++] = position[1];
+                BitBoard.play(position, BitBoard.randomMove(moves, random));
+            }
+        }
+        return Arrays.copyOf(positions, n);
+    }
+
+    private static long approximate(final long[] positions) {
+        long sum = 0L;
+        for (int i = 0; i < positions.length; i += 2) {
+            sum += Heuristics.stableEdgeApprox(positions[i], positions[i + 1])
+                    + Heuristics.stableDiagApprox(positions[i], positions[i + 1]);
+        }
+        return sum;
+    }
+
+    private static long exact(final long[] positions) {
+        long sum = 0L;
+        for (int i = 0; i < positions.length; i += 2) {
+            sum += Stability.stableDifference(positions[i], positions[i + 1]);
+        }
+        return sum;
+    }
+
+    // average stable discs found per position (both sides): the approximation counts a disc once per
+    // corner run it lies on, so discs are taken from the union of the runs
+    private static double approximateCount(final long[] positions) {
+        long count = 0L;
+        for (int i = 0; i < positions.length; i += 2) {
+            count += Long.bitCount(approximateDiscs(positions[i], positions[i + 1]))
+                    + Long.bitCount(approximateDiscs(positions[i + 1], positions[i]));
+        }
+        return count / (positions.length / 2.0);
+    }
+
+    // the player's discs on runs from a corner the player owns, along its edges and diagonal
+    private static long approximateDiscs(final long player, final long opponent) {
+        long discs = 0L;
+        int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 } };
+        for (int corner = 0; corner < 4; corner++) {
+            int row = (corner >>> 1) * 7;
+            int col = (corner & 1) * 7;
+            for (int[] d : directions) {
+                int dr = (row == 0) ? d[0] : -d[0];
+                int dc = (col == 0) ? d[1] : -d[1];
+                for (int i = 0; i < 8 && (player & (1L << ((row + i * dr) * 8 + col + i * dc))) != 0L; i++) {
+                    discs |= 1L << ((row + i * dr) * 8 + col + i * dc);
+                }
+            }
+        }
+        return discs;
+    }
+
+    private static double exactCount(final long[] positions) {
+        long count = 0L;
+        for (int i = 0; i < positions.length; i += 2) {
+            count += Stability.stableCount(positions[i], positions[i + 1])
+                    + Stability.stableCount(positions[i + 1], positions[i]);
+        }
+        return count / (positions.length / 2.0);
+    }
+
+    public static void main(final String[] args) {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1L;
+
+        long[] positions = positions(games, new Random(seed));
+        int count = positions.length / 2;
+        System.out.println(count + " positions from " + games + " random games");
+
+        // checksums keep the JIT from dropping the loops
+        long checksum = 0L;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            checksum += approximate(positions) + exact(positions);
+        }
+        long approximateNs = 0L;
+        long exactNs = 0L;
+        for (int r = 0; r < rounds; r++) {
+            long t0 = System.nanoTime();
+            checksum += approximate(positions);
+            long t1 = System.nanoTime();
+            checksum += exact(positions);
+            long t2 = System.nanoTime();
+            approximateNs += t1 - t0;
+            exactNs += t2 - t1;
+        }
+        System.out.printf("approximate (edge + diagonal runs): %.1f ns/position, %.2f discs counted%n",
+                (double) approximateNs / rounds / count, approximateCount(positions));
+        System.out.printf("exact (Stability.stableDifference): %.1f ns/position, %.2f stable discs%n",
+                (double) exactNs / rounds / count, exactCount(positions));
+        System.out.println("checksum " + checksum);
+    }
+
+}
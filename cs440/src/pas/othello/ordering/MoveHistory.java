@@ -0,0 +1,64 @@
+package src.pas.othello.ordering;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.utils.BitBoard;
+
+/**
+ * Search-lifetime ordering memory: two killer moves per ply and a 64-square history table per
+ * side, both updated whenever a move causes a beta cutoff.
+ */
+public final class MoveHistory
+        extends Object {
+
+    // halve everything once a counter passes this so old iterations fade out and nothing overflows;
+    // getHistory therefore never returns more than this
+    static final int HISTORY_LIMIT = 1 << 24;
+
+    private final int[][] killers;
+    private final int[][] history = new int[2][64];
+
+    public MoveHistory(final int maxPly) {
+        this.killers = new int[maxPly][2];
+        this.clear();
+    }
+
+    public void clear() {
+        for (int[] slots : this.killers) {
+            Arrays.fill(slots, BitBoard.PASS);
+        }
+        for (int[] side : this.history) {
+            Arrays.fill(side, 0);
+        }
+    }
+
+    public int getKiller(final int ply, final int slot) {
+        return this.killers[ply][slot];
+    }
+
+    public int getHistory(final boolean maxToMove, final int square) {
+        return this.history[maxToMove ? 0 : 1][square];
+    }
+
+    public void onCutoff(final int ply, final boolean maxToMove, final int move, final int remaining) {
+        if (move == BitBoard.PASS) {
+            return;
+        }
+        if (this.killers[ply][0] != move) {
+            this.killers[ply][1] = this.killers[ply][0];
+            this.killers[ply][0] = move;
+        }
+        int[] side = this.history[maxToMove ? 0 : 1];
+        side[move] += remaining * remaining;
+        if (side[move] > HISTORY_LIMIT) {
+            for (int[] s : this.history) {
+                for (int sq = 0; sq < 64; sq++) {
+                    s[sq] >>= 1;
+                }
+            }
+        }
+    }
+
+}
@@ -3,6 +3,9 @@ package src.pas.othello.ordering;
 // SYSTEM IMPORTS
 import edu.bu.pas.othello.traversal.Node;
 import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.MoveList;
+import src.pas.othello.utils.SearchBoard;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,4 +37,114 @@ public class MoveOrderer
         return children;
     }
 
+    // bitboard children, best-first for whoever is moving at the parent
+    public static List<BitBoard> orderMoves(BitBoard parent) {
+        return orderMoves(parent, BitBoard.PASS);
+    }
+
+    // same, but the transposition table's best move (if any) is always searched first
+    public static List<BitBoard> orderMoves(BitBoard parent, int hashMove) {
+        List<BitBoard> children = parent.getChildren();
+        if (children.size() < 2) {
+            return children;
+        }
+        double[] keys = new double[64];
+        for (BitBoard child : children) {
+            double heuristicValue = Heuristics.calculateHeuristicValue(child.getMine(), child.getTheirs());
+            keys[child.getLastMove()] = parent.isMaxToMove() ? -heuristicValue : heuristicValue;
+        }
+        if (hashMove != BitBoard.PASS) {
+            keys[hashMove] = Double.NEGATIVE_INFINITY;
+        }
+        children.sort((a, b) -> Double.compare(keys[a.getLastMove()], keys[b.getLastMove()]));
+        return children;
+    }
+
+    // fill the current ply's MoveList from a legal-move mask (hash move first); nothing is scored yet
+    public static MoveList generate(SearchBoard b, long moves, int hashMove) {
+        MoveList list = b.getMoveList();
+        list.clear();
+        if (moves == 0L) {
+            // edge case no legal moves but non terminal
+            list.add(BitBoard.PASS);
+            list.setScored(true);
+            return list;
+        }
+        if (hashMove != BitBoard.PASS && (moves & (1L << hashMove)) != 0L) {
+            list.add(hashMove);
+            moves &= ~(1L << hashMove);
+        }
+        while (moves != 0L) {
+            list.add(Long.numberOfTrailingZeros(moves));
+            moves &= moves - 1;
+        }
+        return list;
+    }
+
+    // nodes with at least this many plies left below them (i.e. near the root) order children by
+    // full static evaluation; everywhere else killers/history are used
+    public static final int STATIC_ORDERING_DEPTH = 3;
+
+    // history keys are HISTORY_SCALE * history plus a square weight smaller than HISTORY_SCALE, so
+    // they stay below HISTORY_SCALE * (HISTORY_LIMIT + 1); killers are keyed above anything history
+    // can reach
+    private static final double HISTORY_SCALE = 256.0;
+    private static final double KILLER_KEY = HISTORY_SCALE * 2.0 * MoveHistory.HISTORY_LIMIT;
+
+    // i-th move in best-first order. The hash move is handed out without scoring anything, so the
+    // remaining children are only scored if it did not cause a cutoff.
+    public static int pick(SearchBoard b, MoveList list, int i, int hashMove, int remaining) {
+        if (!list.isScored()) {
+            if (i == 0 && list.getMove(0) == hashMove) {
+                return hashMove;
+            }
+            if (remaining >= STATIC_ORDERING_DEPTH) {
+                scoreByEvaluation(b, list, i);
+            } else {
+                scoreByHistory(b, list, i);
+            }
+            list.setScored(true);
+        }
+        return list.selectBest(i);
+    }
+
+    // the move that caused a beta cutoff at b's current ply
+    public static void onCutoff(SearchBoard b, int move, int remaining) {
+        b.getMoveHistory().onCutoff(b.getPly(), b.isMaxToMove(), move, remaining);
+    }
+
+    // killer moves first, then history score, with the square's PST weight as a tie breaker
+    private static void scoreByHistory(SearchBoard b, MoveList list, int from) {
+        MoveHistory moveHistory = b.getMoveHistory();
+        int killer0 = moveHistory.getKiller(b.getPly(), 0);
+        int killer1 = moveHistory.getKiller(b.getPly(), 1);
+        for (int i = from; i < list.size(); i++) {
+            int square = list.getMove(i);
+            double key;
+            if (square == killer0) {
+                key = KILLER_KEY + 1;
+            } else if (square == killer1) {
+                key = KILLER_KEY;
+            } else {
+                key = HISTORY_SCALE * moveHistory.getHistory(b.isMaxToMove(), square) + Heuristics.squareWeight(square);
+            }
+            list.setKey(i, key);
+        }
+    }
+
+    private static void scoreByEvaluation(SearchBoard b, MoveList list, int from) {
+        long mover = b.getMover();
+        long waiter = b.getWaiter();
+        for (int i = from; i < list.size(); i++) {
+            int square = list.getMove(i);
+            long flipped = BitBoard.flips(mover, waiter, square);
+            long childMover = mover | flipped | (1L << square);
+            long childWaiter = waiter & ~flipped;
+            double heuristicValue = b.isMaxToMove()
+                    ? b.getEvaluator().evaluateChild(childMover, childWaiter, true, square, flipped)
+                    : b.getEvaluator().evaluateChild(childWaiter, childMover, false, square, flipped);
+            list.setKey(i, b.isMaxToMove() ? heuristicValue : -heuristicValue);
+        }
+    }
+
 }
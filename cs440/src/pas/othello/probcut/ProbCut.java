@@ -0,0 +1,151 @@
+package src.pas.othello.probcut;
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Multi-ProbCut parameters: for a node with deep plies left, a search of only shallow plies predicts
+ * the deep value as v_deep = a * v_shallow + b with residual standard deviation sigma. If the
+ * prediction clears beta (or falls short of alpha) by threshold standard deviations, the node fails
+ * high (low) without the deep search. Several shallow depths can be given for one deep depth; they
+ * are tried cheapest first.
+ *
+ * Parameters depend on the game stage (STAGES bands of EMPTIES_PER_STAGE empties) and on the
+ * evaluation the values came from, so they are fitted offline by ProbCutTrainer for the default
+ * pattern evaluation. Values are from the mover's point of view.
+ *
+ * File format: plain text, one cut per line, '#' starts a comment:
+ * stage deep shallow a b sigma
+ */
+public final class ProbCut
+        extends Object {
+
+    // relative to the directory the game is launched from; -Dothello.probcutParams overrides it
+    public static final String DEFAULT_PATH = "data/othello/probcut.params";
+    public static final int STAGES = 6;
+    public static final int EMPTIES_PER_STAGE = 10;
+    // deepest remaining depth that can have cuts
+    public static final int MAX_DEPTH = 24;
+    // how many standard deviations a prediction must clear the window by
+    public static final double DEFAULT_THRESHOLD = 1.5;
+
+    // one (deep, shallow) pair of a stage
+    public static final class Cut
+            extends Object {
+        public final int shallow;
+        public final double a;
+        public final double b;
+        public final double sigma;
+
+        public Cut(final int shallow, final double a, final double b, final double sigma) {
+            this.shallow = shallow;
+            this.a = a;
+            this.b = b;
+            this.sigma = sigma;
+        }
+    }
+
+    private static final Cut[] NONE = new Cut[0];
+
+    // cuts[stage * (MAX_DEPTH + 1) + deep], shallow depth ascending
+    private final Cut[][] cuts;
+    private final double threshold;
+
+    private ProbCut(final Cut[][] cuts, final double threshold) {
+        this.cuts = cuts;
+        this.threshold = threshold;
+    }
+
+    public static int stage(final int empties) {
+        return Math.max(0, Math.min(STAGES - 1, (60 - empties) / EMPTIES_PER_STAGE));
+    }
+
+    // the cuts to try at a node with this many empties and deep plies left (empty if none)
+    public Cut[] cuts(final int empties, final int deep) {
+        return (deep <= MAX_DEPTH) ? this.cuts[stage(empties) * (MAX_DEPTH + 1) + deep] : NONE;
+    }
+
+    public double getThreshold() {
+        return this.threshold;
+    }
+
+    public static ProbCut load(final Path path, final double threshold) throws IOException {
+        List<List<Cut>> lists = new ArrayList<List<Cut>>();
+        for (int i = 0; i < STAGES * (MAX_DEPTH + 1); i++) {
+            lists.add(new ArrayList<Cut>());
+        }
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String text = ((comment < 0) ? line : line.substring(0, comment)).trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                String[] fields = text.split("\\s+");
+                try {
+                    if (fields.length != 6) {
+                        throw new NumberFormatException("expected 6 fields, got " + fields.length);
+                    }
+                    int stage = Integer.parseInt(fields[0]);
+                    int deep = Integer.parseInt(fields[1]);
+                    int shallow = Integer.parseInt(fields[2]);
+                    double a = Double.parseDouble(fields[3]);
+                    double b = Double.parseDouble(fields[4]);
+                    double sigma = Double.parseDouble(fields[5]);
+                    if (stage < 0 || stage >= STAGES || deep > MAX_DEPTH || shallow < 0 || shallow >= deep
+                            || !(a > 0.0) || !(sigma >= 0.0)) {
+                        throw new NumberFormatException("out of range");
+                    }
+                    lists.get(stage * (MAX_DEPTH + 1) + deep).add(new Cut(shallow, a, b, sigma));
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNumber + ": bad cut '" + line + "' (" + e.getMessage() + ")");
+                }
+            }
+        }
+        Cut[][] cuts = new Cut[lists.size()][];
+        for (int i = 0; i < cuts.length; i++) {
+            cuts[i] = lists.get(i).toArray(NONE);
+            Arrays.sort(cuts[i], (x, y) -> Integer.compare(x.shallow, y.shallow));
+        }
+        return new ProbCut(cuts, threshold);
+    }
+
+    // loads DEFAULT_PATH (or othello.probcutParams) with othello.probcutThreshold from config; null
+    // if othello.probcut is false or there are no usable parameters
+    public static ProbCut loadDefault(final Properties config) {
+        if (!Boolean.parseBoolean(config.getProperty("othello.probcut", "true"))) {
+            return null;
+        }
+        Path path = Path.of(config.getProperty("othello.probcutParams", DEFAULT_PATH));
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        try {
+            return load(path, Double.parseDouble(
+                    config.getProperty("othello.probcutThreshold", Double.toString(DEFAULT_THRESHOLD))));
+        } catch (IOException e) {
+            System.err.println("Warning: could not load probcut parameters: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // one line per cut, in the format load() reads
+    public static void write(final PrintStream out, final int stage, final int deep, final Cut cut) {
+        out.printf(Locale.ROOT, "%d %d %d %.4f %.4f %.4f%n", stage, deep, cut.shallow, cut.a, cut.b, cut.sigma);
+    }
+
+}
@@ -0,0 +1,223 @@
+package src.pas.othello.probcut;
+
+// SYSTEM IMPORTS
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.PlayerType;
+import src.pas.othello.agents.OthelloAgent;
+import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.utils.BitBoard;
+import src.pas.othello.utils.SearchBoard;
+
+/**
+ * Offline fitting of ProbCut parameters, in two steps.
+ *
+ * collect: self-play games that open with a random number (up to randomPlies) of random moves, after
+ * which OthelloAgent (ProbCut off) plays both sides at a fixed depth. Every position from the last
+ * random move down to MIN_EMPTIES empties is searched to each depth 0..depth, and its empties and
+ * the values at every depth (mover's point of view) are logged as one CSV line. The evaluation is
+ * whatever -Dothello.eval/-Dothello.patterns select, and the parameters are only valid for it.
+ *
+ * fit: for every stage and every (deep, shallow) pair in PAIRS, least squares of the deep values on
+ * the shallow ones gives a, b and the residual deviation sigma. The cuts are written in ProbCut's
+ * format, skipping pairs with fewer than MIN_SAMPLES positions.
+ *
+ * The shipped parameters are
+ * java -cp "lib/*:." src.pas.othello.probcut.ProbCutTrainer collect 400 10 20 1 probcut.csv
+ * java -cp "lib/*:." src.pas.othello.probcut.ProbCutTrainer fit probcut.csv data/othello/probcut.params
+ *
+ * usage: ProbCutTrainer collect [games] [depth] [randomPlies] [seed] [output.csv]
+ *        ProbCutTrainer fit [input.csv] [output.params]
+ */
+public final class ProbCutTrainer
+        extends Object {
+
+    // positions with fewer empties are left to the endgame solver
+    public static final int MIN_EMPTIES = 6;
+    public static final int MIN_SAMPLES = 100;
+    // { deep, shallow }: the cuts fitted, a shallow search of about half the depth (same parity where
+    // possible, since odd and even depths end on different sides' moves)
+    public static final int[][] PAIRS = {
+            { 3, 1 }, { 4, 2 }, { 5, 1 }, { 6, 2 }, { 7, 3 }, { 8, 4 }, { 9, 3 }, { 10, 4 }, { 10, 6 } };
+
+    private final OthelloAgent agent;
+    private final Heuristics.Weights weights;
+    private final int depth;
+    private final int randomPlies;
+    private final Random random;
+
+    public ProbCutTrainer(final int depth, final int randomPlies, final long seed) {
+        Properties config = new Properties(System.getProperties());
+        // the values must come from the unpruned search
+        config.setProperty("othello.probcut", "false");
+        // the agent is only used for its search; player type and move time do not matter here
+        this.agent = new OthelloAgent(PlayerType.BLACK, 0L, OthelloAgent.DEFAULT_TABLE_BITS,
+                OthelloAgent.SearchMode.PVS, 1, config);
+        this.weights = Heuristics.Weights.fromProperties(config);
+        this.depth = depth;
+        this.randomPlies = randomPlies;
+        this.random = new Random(seed);
+    }
+
+    // plays one game, writing a line per searched position; returns the number of lines
+    public int playGame(final PrintStream out) {
+        long[] position = BitBoard.startPosition();
+        int random = this.random.nextInt(this.randomPlies + 1);
+        int lines = 0;
+        for (int ply = 0; ; ply++) {
+            long player = position[0];
+            long opponent = position[1];
+            long moves = BitBoard.legalMoves(player, opponent);
+            int empties = Long.bitCount(~(player | opponent));
+            if (moves == 0L) {
+                if (BitBoard.legalMoves(opponent, player) == 0L) {
+                    break;
+                }
+                BitBoard.pass(position);
+                continue;
+            }
+            if (empties < MIN_EMPTIES) {
+                break;
+            }
+            int move;
+            if (ply < random) {
+                move = BitBoard.randomMove(moves, this.random);
+            } else {
+                BitBoard root = new BitBoard(player, opponent, true, BitBoard.PASS, 0);
+                StringBuilder line = new StringBuilder();
+                line.append(empties).append(',')
+                        .append(format(new SearchBoard(root, this.agent.getPatternEvaluator(), this.weights).evaluate()));
+                move = BitBoard.PASS;
+                for (int d = 1; d <= this.depth; d++) {
+                    move = this.agent.searchFixedDepth(root, d);
+                    line.append(',').append(format(this.agent.getLastSearchValue()));
+                }
+                out.println(line);
+                lines++;
+            }
+            BitBoard.play(position, move);
+        }
+        return lines;
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    // cuts for every PAIRS entry with enough samples in each stage, from collected CSV lines
+    public static void fit(final List<double[]> samples, final PrintStream out) {
+        out.println("# stage deep shallow a b sigma, from " + samples.size() + " positions");
+        for (int stage = 0; stage < ProbCut.STAGES; stage++) {
+            for (int[] pair : PAIRS) {
+                int deep = pair[0];
+                int shallow = pair[1];
+                // sums for the regression of deep on shallow
+                double n = 0.0;
+                double sx = 0.0;
+                double sy = 0.0;
+                double sxx = 0.0;
+                double sxy = 0.0;
+                double syy = 0.0;
+                for (double[] sample : samples) {
+                    if (sample.length <= deep + 1 || ProbCut.stage((int) sample[0]) != stage) {
+                        continue;
+                    }
+                    double x = sample[1 + shallow];
+                    double y = sample[1 + deep];
+                    n++;
+                    sx += x;
+                    sy += y;
+                    sxx += x * x;
+                    sxy += x * y;
+                    syy += y * y;
+                }
+                double varX = sxx - sx * sx / n;
+                if (n < MIN_SAMPLES || varX <= 0.0) {
+                    continue;
+                }
+                double a = (sxy - sx * sy / n) / varX;
+                double b = (sy - a * sx) / n;
+                // residual sum of squares: syy - b * sy - a * sxy for the fitted line
+                double residual = Math.max(0.0, syy - b * sy - a * sxy);
+                double sigma = Math.sqrt(residual / (n - 2.0));
+                if (a > 0.0) {
+                    ProbCut.write(out, stage, deep, new ProbCut.Cut(shallow, a, b, sigma));
+                }
+            }
+        }
+    }
+
+    private static List<double[]> read(final Path input) throws IOException {
+        List<double[]> samples = new ArrayList<double[]>();
+        try (BufferedReader in = Files.newBufferedReader(input)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                double[] sample = new double[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    sample[i] = Double.parseDouble(fields[i]);
+                }
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length > 0 && "collect".equals(args[0])) {
+            int games = (args.length > 1) ? Integer.parseInt(args[1]) : 400;
+            int depth = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+            int randomPlies = (args.length > 3) ? Integer.parseInt(args[3]) : 20;
+            long seed = (args.length > 4) ? Long.parseLong(args[4]) : 1L;
+            Path output = Path.of((args.length > 5) ? args[5] : "probcut.csv");
+
+            ProbCutTrainer trainer = new ProbCutTrainer(depth, randomPlies, seed);
+            // the agent reports nothing for fixed-depth searches, so stdout is free for progress
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output), false, "UTF-8")) {
+                StringBuilder header = new StringBuilder("empties");
+                for (int d = 0; d <= depth; d++) {
+                    header.append(",v").append(d);
+                }
+                out.println(header);
+                long t0 = System.nanoTime();
+                int positions = 0;
+                for (int g = 0; g < games; g++) {
+                    positions += trainer.playGame(out);
+                    if ((g + 1) % 10 == 0) {
+                        System.out.println("games: " + (g + 1) + " positions: " + positions +
+                                " elapsed: " + (System.nanoTime() - t0) / 1_000_000_000L + "s");
+                    }
+                }
+            }
+        } else if (args.length > 0 && "fit".equals(args[0])) {
+            Path input = Path.of((args.length > 1) ? args[1] : "probcut.csv");
+            Path output = Path.of((args.length > 2) ? args[2] : ProbCut.DEFAULT_PATH);
+            List<double[]> samples = read(input);
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output), false, "UTF-8")) {
+                fit(samples, out);
+            }
+            System.out.println("fitted " + samples.size() + " positions to " + output);
+        } else {
+            System.err.println("usage: ProbCutTrainer collect [games] [depth] [randomPlies] [seed] [output.csv]");
+            System.err.println("       ProbCutTrainer fit [input.csv] [output.params]");
+            System.exit(1);
+        }
+    }
+
+}
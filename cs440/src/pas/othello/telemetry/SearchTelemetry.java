@@ -0,0 +1,239 @@
+package src.pas.othello.telemetry;
+
+// SYSTEM IMPORTS
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Per-move search metrics, kept in preallocated columns used as a ring buffer (the newest capacity
+ * moves survive), and written out after the game on a background thread.
+ *
+ * record() only stores primitives, so recording costs a few array writes per move and nothing is
+ * formatted or written while the clock runs. flush(), called once the game is over, formats the
+ * moves recorded since the last flush and hands the text to the writer thread, which appends one
+ * line per move to the file: CSV if its name ends in .csv (with a header when the file is new), JSON
+ * lines otherwise. move counts the agent's moves across games. Pending writes are finished before
+ * the JVM exits.
+ *
+ * OthelloAgent keeps no SearchTelemetry unless -Dothello.telemetry names a file, so with it off the
+ * only cost is a null check per move.
+ */
+public final class SearchTelemetry
+        extends Object {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    // how long exiting waits for pending writes
+    public static final long EXIT_WAIT_MS = 5000L;
+
+    // how the move was chosen
+    public enum Source {
+        SEARCH,
+        SOLVED,
+        BOOK,
+        FORCED
+    }
+
+    private static final Source[] SOURCES = Source.values();
+    private static final String[] COLUMNS = {
+            "player", "game", "move", "empties", "source", "depth", "iterations", "nodes", "nps",
+            "used_ms", "soft_ms", "hard_ms", "cutoffs", "first_move_cutoff_rate", "tt_probes", "tt_hit_rate",
+            "probcuts", "best_move_changes", "main_depth", "helper_lead", "helper_nodes" };
+
+    // one writer for every agent in the JVM; its thread exits when idle, so it never keeps the JVM up
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(0, 1, 1L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), r -> new Thread(r, "othello-telemetry"));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            WRITER.shutdown();
+            try {
+                WRITER.awaitTermination(EXIT_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    private final Path path;
+    // which agent the lines are from (e.g. its colour), since several agents can share a file
+    private final String player;
+    private final int capacity;
+    // columns, indexed by move % capacity
+    private final int[] game;
+    private final int[] empties;
+    private final byte[] source;
+    private final int[] depth;
+    private final int[] iterations;
+    private final long[] nodes;
+    private final long[] usedNanos;
+    private final long[] softMs;
+    private final long[] hardMs;
+    private final long[] cutoffs;
+    private final long[] firstMoveCutoffs;
+    private final long[] tableProbes;
+    private final long[] tableHits;
+    private final long[] probCuts;
+    private final int[] bestMoveChanges;
+    private final int[] mainDepth;
+    private final int[] helperLead;
+    private final long[] helperNodes;
+    // moves recorded so far, and how many of them have been flushed
+    private long recorded = 0L;
+    private long flushed = 0L;
+    private int games = 0;
+
+    public SearchTelemetry(final Path path, final String player, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1, got " + capacity);
+        }
+        this.path = path;
+        this.player = player;
+        this.capacity = capacity;
+        this.game = new int[capacity];
+        this.empties = new int[capacity];
+        this.source = new byte[capacity];
+        this.depth = new int[capacity];
+        this.iterations = new int[capacity];
+        this.nodes = new long[capacity];
+        this.usedNanos = new long[capacity];
+        this.softMs = new long[capacity];
+        this.hardMs = new long[capacity];
+        this.cutoffs = new long[capacity];
+        this.firstMoveCutoffs = new long[capacity];
+        this.tableProbes = new long[capacity];
+        this.tableHits = new long[capacity];
+        this.probCuts = new long[capacity];
+        this.bestMoveChanges = new int[capacity];
+        this.mainDepth = new int[capacity];
+        this.helperLead = new int[capacity];
+        this.helperNodes = new long[capacity];
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public long getRecorded() {
+        return this.recorded;
+    }
+
+    // moves overwritten before they were flushed
+    public long getDropped() {
+        return Math.max(0L, this.recorded - this.flushed - this.capacity);
+    }
+
+    // depth is the deepest completed iteration (0 for moves that were not searched); softMs is the
+    // time manager's final soft target, hardMs the move's hard limit. With Lazy SMP helpers,
+    // mainDepth is the main thread's own deepest iteration, helperLead how far the deepest helper got
+    // past it and helperNodes the helpers' share of nodes; without helpers they are depth, 0 and 0.
+    public void record(final int empties, final Source source, final int depth, final int iterations,
+            final long nodes, final long usedNanos, final long softMs, final long hardMs,
+            final long cutoffs, final long firstMoveCutoffs, final long tableProbes, final long tableHits,
+            final long probCuts, final int bestMoveChanges, final int mainDepth, final int helperLead,
+            final long helperNodes) {
+        int i = (int) (this.recorded % this.capacity);
+        this.game[i] = this.games;
+        this.empties[i] = empties;
+        this.source[i] = (byte) source.ordinal();
+        this.depth[i] = depth;
+        this.iterations[i] = iterations;
+        this.nodes[i] = nodes;
+        this.usedNanos[i] = usedNanos;
+        this.softMs[i] = softMs;
+        this.hardMs[i] = hardMs;
+        this.cutoffs[i] = cutoffs;
+        this.firstMoveCutoffs[i] = firstMoveCutoffs;
+        this.tableProbes[i] = tableProbes;
+        this.tableHits[i] = tableHits;
+        this.probCuts[i] = probCuts;
+        this.bestMoveChanges[i] = bestMoveChanges;
+        this.mainDepth[i] = mainDepth;
+        this.helperLead[i] = helperLead;
+        this.helperNodes[i] = helperNodes;
+        this.recorded++;
+    }
+
+    // formats the moves recorded since the last flush and queues them for the writer; later moves
+    // are numbered as the next game. Returns the pending write, or null if there was nothing new.
+    public Future<?> flush() {
+        long from = Math.max(this.flushed, this.recorded - this.capacity);
+        boolean csv = this.path.getFileName().toString().endsWith(".csv");
+        StringBuilder lines = new StringBuilder();
+        for (long m = from; m < this.recorded; m++) {
+            this.appendLine(lines, (int) (m % this.capacity), m, csv);
+        }
+        this.flushed = this.recorded;
+        this.games++;
+        if (lines.length() == 0) {
+            return null;
+        }
+        final Path target = this.path;
+        final String text = lines.toString();
+        return WRITER.submit(() -> append(target, text, csv));
+    }
+
+    private void appendLine(final StringBuilder out, final int i, final long move, final boolean csv) {
+        double seconds = this.usedNanos[i] / 1e9;
+        Object[] values = {
+                this.player, this.game[i], move, this.empties[i],
+                SOURCES[this.source[i]].name().toLowerCase(Locale.ROOT), this.depth[i], this.iterations[i], this.nodes[i],
+                (seconds > 0.0) ? Math.round(this.nodes[i] / seconds) : 0L,
+                String.format(Locale.ROOT, "%.3f", this.usedNanos[i] / 1e6), this.softMs[i], this.hardMs[i],
+                this.cutoffs[i], ratio(this.firstMoveCutoffs[i], this.cutoffs[i]),
+                this.tableProbes[i], ratio(this.tableHits[i], this.tableProbes[i]),
+                this.probCuts[i], this.bestMoveChanges[i], this.mainDepth[i], this.helperLead[i],
+                this.helperNodes[i] };
+        if (!csv) {
+            out.append('{');
+        }
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (c > 0) {
+                out.append(',');
+            }
+            if (csv) {
+                out.append(values[c]);
+            } else {
+                out.append('"').append(COLUMNS[c]).append("\":");
+                // player and source are the only text columns
+                boolean quoted = c == 0 || c == 4;
+                out.append(quoted ? "\"" : "").append(values[c]).append(quoted ? "\"" : "");
+            }
+        }
+        out.append(csv ? "\n" : "}\n");
+    }
+
+    private static String ratio(final long part, final long whole) {
+        return String.format(Locale.ROOT, "%.4f", (whole > 0L) ? (double) part / whole : 0.0);
+    }
+
+    private static void append(final Path path, final String text, final boolean csv) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            boolean header = csv && (!Files.exists(path) || Files.size(path) == 0L);
+            try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (header) {
+                    out.write(String.join(",", COLUMNS));
+                    out.write('\n');
+                }
+                out.write(text);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not write telemetry to " + path + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+package src.pas.othello.tournament;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Elo arithmetic for Tournament.
+ *
+ * Pairwise: the Elo difference implied by a score (wins + draws / 2 over games) and its 95% interval
+ * from the per-game variance of the win/draw/loss results.
+ *
+ * Ratings: maximum likelihood Bradley-Terry ratings over every game of the tournament (draws count
+ * as half a win for each side), with one variant anchored at 0. They are fitted with the MM
+ * iteration gamma_i = points_i / sum_j (games_ij / (gamma_i + gamma_j)), and their 95% intervals
+ * come from the inverse of the Fisher information with the anchor held fixed.
+ */
+public final class Elo
+        extends Object {
+
+    // Elo points per natural-log unit of the rating scale (400 / ln 10)
+    public static final double SCALE = 400.0 / Math.log(10.0);
+    public static final double Z95 = 1.959964;
+
+    private static final int MAX_ITERATIONS = 10000;
+    private static final double TOLERANCE = 1e-10;
+
+    private Elo() {
+    }
+
+    // Elo difference for an expected score in (0, 1)
+    public static double fromScore(final double score) {
+        return -400.0 * Math.log10(1.0 / score - 1.0);
+    }
+
+    // { low, estimate, high } Elo difference for the side that won, drew and lost this many games.
+    // Scores of 0 or 1 are pulled in by half a game so the bounds stay finite.
+    public static double[] interval(final int wins, final int draws, final int losses) {
+        int n = wins + draws + losses;
+        if (n == 0) {
+            return new double[] { Double.NaN, Double.NaN, Double.NaN };
+        }
+        double score = (wins + 0.5 * draws) / n;
+        double variance = (wins * (1.0 - score) * (1.0 - score)
+                + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / n;
+        double lo = 0.5 / n;
+        double hi = 1.0 - lo;
+        // all wins, all losses or all draws have no spread; fall back to the win/loss variance of the
+        // clamped score rather than report a zero-width interval
+        if (variance == 0.0) {
+            double s = clamp(score, lo, hi);
+            variance = s * (1.0 - s);
+        }
+        double error = Z95 * Math.sqrt(variance / n);
+        return new double[] {
+                fromScore(clamp(score - error, lo, hi)),
+                fromScore(clamp(score, lo, hi)),
+                fromScore(clamp(score + error, lo, hi)) };
+    }
+
+    // ratings[i] for points[i][j] scored by i against j in games[i][j] games (games symmetric),
+    // anchor's rating fixed at 0. One virtual draw is added to every pairing that was played, so a
+    // variant that won or lost all its games still gets a finite rating.
+    public static double[] ratings(final double[][] points, final int[][] games, final int anchor) {
+        int n = games.length;
+        double[][] p = new double[n][n];
+        double[][] g = new double[n][n];
+        double[] total = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && games[i][j] > 0) {
+                    p[i][j] = points[i][j] + 0.5;
+                    g[i][j] = games[i][j] + 1.0;
+                    total[i] += p[i][j];
+                }
+            }
+        }
+        double[] gamma = new double[n];
+        Arrays.fill(gamma, 1.0);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0.0;
+            for (int i = 0; i < n; i++) {
+                double denominator = 0.0;
+                for (int j = 0; j < n; j++) {
+                    if (g[i][j] > 0.0) {
+                        denominator += g[i][j] / (gamma[i] + gamma[j]);
+                    }
+                }
+                if (denominator > 0.0) {
+                    double next = total[i] / denominator;
+                    change = Math.max(change, Math.abs(Math.log(next / gamma[i])));
+                    gamma[i] = next;
+                }
+            }
+            double norm = gamma[anchor];
+            for (int i = 0; i < n; i++) {
+                gamma[i] /= norm;
+            }
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+        double[] ratings = new double[n];
+        for (int i = 0; i < n; i++) {
+            ratings[i] = SCALE * Math.log(gamma[i]);
+        }
+        return ratings;
+    }
+
+    // 95% half-widths of ratings(...) (0 for the anchor, NaN where the information matrix is
+    // singular, e.g. a variant that never played)
+    public static double[] errors(final double[] ratings, final int[][] games, final int anchor) {
+        int n = games.length;
+        // Fisher information of the log-strengths, without the anchor's row and column
+        int[] index = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            index[i] = (i == anchor) ? -1 : m++;
+        }
+        double[][] info = new double[m][2 * m];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j || games[i][j] == 0) {
+                    continue;
+                }
+                double pij = 1.0 / (1.0 + Math.exp((ratings[j] - ratings[i]) / SCALE));
+                double w = (games[i][j] + 1.0) * pij * (1.0 - pij);
+                if (index[i] >= 0) {
+                    info[index[i]][index[i]] += w;
+                    if (index[j] >= 0) {
+                        info[index[i]][index[j]] -= w;
+                    }
+                }
+            }
+        }
+        double[] errors = new double[n];
+        if (!invert(info, m)) {
+            Arrays.fill(errors, Double.NaN);
+            errors[anchor] = 0.0;
+            return errors;
+        }
+        for (int i = 0; i < n; i++) {
+            errors[i] = (index[i] < 0) ? 0.0 : Z95 * SCALE * Math.sqrt(info[index[i]][m + index[i]]);
+        }
+        return errors;
+    }
+
+    // Gauss-Jordan on the m x m matrix in the left half of a (right half receives the inverse)
+    private static boolean invert(final double[][] a, final int m) {
+        for (int i = 0; i < m; i++) {
+            a[i][m + i] = 1.0;
+        }
+        for (int c = 0; c < m; c++) {
+            int pivot = c;
+            for (int r = c + 1; r < m; r++) {
+                if (Math.abs(a[r][c]) > Math.abs(a[pivot][c])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(a[pivot][c]) < 1e-12) {
+                return false;
+            }
+            double[] swap = a[c];
+            a[c] = a[pivot];
+            a[pivot] = swap;
+            double d = a[c][c];
+            for (int k = 0; k < 2 * m; k++) {
+                a[c][k] /= d;
+            }
+            for (int r = 0; r < m; r++) {
+                if (r != c && a[r][c] != 0.0) {
+                    double f = a[r][c];
+                    for (int k = 0; k < 2 * m; k++) {
+                        a[r][k] -= f * a[c][k];
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double clamp(final double x, final double lo, final double hi) {
+        return Math.max(lo, Math.min(hi, x));
+    }
+
+}
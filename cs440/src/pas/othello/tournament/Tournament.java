@@ -0,0 +1,315 @@
+package src.pas.othello.tournament;
+
+// SYSTEM IMPORTS
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.agents.Agent;
+import edu.bu.pas.othello.game.Game;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.utils.Coordinate;
+import src.pas.othello.agents.OthelloAgent;
+
+/**
+ * Headless round-robin match runner for OthelloAgent variants and the bundled opponents.
+ *
+ * Every pair of variants plays the same set of openings, each opening twice with colours swapped.
+ * An opening is openingPlies uniformly random legal moves from the standard start, drawn from the
+ * tournament seed, so reruns with the same arguments play the same openings. Games run in parallel
+ * on a fixed pool of worker threads, through the same turn loop as edu.bu.pas.othello.Main (per-move
+ * time limits and timeout losses included); each game gets freshly constructed agents.
+ *
+ * At the end it prints, per variant, the games, score, maximum likelihood Elo with a 95% interval
+ * (first variant anchored at 0, see Elo), average completed search depth, nodes per second and
+ * timeouts, followed by the score and Elo difference of every pairing.
+ *
+ * The agents' own console output is discarded while games run. Use at most as many worker threads
+ * as there are cores (divided by othello.threads for SMP variants); oversubscribing the machine
+ * shortens everyone's effective move time and skews the results.
+ *
+ * usage: Tournament [openings] [moveMs] [workers] [openingPlies] [seed] variant variant...
+ * e.g. java -cp "lib/*:." src.pas.othello.tournament.Tournament 50 200 4 8 1 \
+ *     pattern classic:othello.eval=classic HardAgent
+ * (see Variant for the variant syntax)
+ */
+public final class Tournament
+        extends Object {
+
+    // same limit as edu.bu.pas.othello.Main's default
+    public static final int MAX_TURNS = 10000;
+    private static final PlayerType[] TURN_ORDER = { PlayerType.BLACK, PlayerType.WHITE };
+
+    private final List<Variant> variants;
+    private final long moveMs;
+    private final int openingPlies;
+
+    // per variant, summed over its games
+    private final int[] wins;
+    private final int[] draws;
+    private final int[] losses;
+    private final int[] timeouts;
+    private final int[] searchedMoves;
+    private final double[] depthSum;
+    private final long[] nodes;
+    private final long[] searchNanos;
+    // per ordered pair (i, j): i's results against j
+    private final int[][] pairWins;
+    private final int[][] pairDraws;
+    private final int[][] pairLosses;
+
+    // what one game reports back to the thread that tallies results
+    private static final class Result
+            extends Object {
+        private final int black;
+        private final int white;
+        // +1 black won, -1 white won, 0 draw
+        private final int outcome;
+        private final boolean blackTimedOut;
+        private final boolean whiteTimedOut;
+        private final Agent blackAgent;
+        private final Agent whiteAgent;
+
+        private Result(final int black, final int white, final int outcome,
+                final boolean blackTimedOut, final boolean whiteTimedOut,
+                final Agent blackAgent, final Agent whiteAgent) {
+            this.black = black;
+            this.white = white;
+            this.outcome = outcome;
+            this.blackTimedOut = blackTimedOut;
+            this.whiteTimedOut = whiteTimedOut;
+            this.blackAgent = blackAgent;
+            this.whiteAgent = whiteAgent;
+        }
+    }
+
+    public Tournament(final List<Variant> variants, final long moveMs, final int openingPlies) {
+        int n = variants.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("a tournament needs at least two variants, got " + n);
+        }
+        this.variants = new ArrayList<Variant>(variants);
+        this.moveMs = moveMs;
+        this.openingPlies = openingPlies;
+        this.wins = new int[n];
+        this.draws = new int[n];
+        this.losses = new int[n];
+        this.timeouts = new int[n];
+        this.searchedMoves = new int[n];
+        this.depthSum = new double[n];
+        this.nodes = new long[n];
+        this.searchNanos = new long[n];
+        this.pairWins = new int[n][n];
+        this.pairDraws = new int[n][n];
+        this.pairLosses = new int[n][n];
+    }
+
+    // plays one game; black and white index variants
+    private Result play(final int black, final int white, final long openingSeed) {
+        Agent blackAgent = this.variants.get(black).create(PlayerType.BLACK, this.moveMs);
+        Agent whiteAgent = this.variants.get(white).create(PlayerType.WHITE, this.moveMs);
+        Game game = new Game(new Random(openingSeed), MAX_TURNS);
+        game.setBlackPlayerAgent(blackAgent);
+        game.setWhitePlayerAgent(whiteAgent);
+
+        Random opening = new Random(openingSeed);
+        int ply = 0;
+        // the turn loop of edu.bu.pas.othello.Main, with random moves for the first openingPlies
+        while (!game.isGameOver()) {
+            for (PlayerType player : TURN_ORDER) {
+                game.setCurrentPlayerType(player);
+                if (game.getFrontier(player).size() > 0) {
+                    Coordinate move = (ply < this.openingPlies)
+                            ? randomMove(game, player, opening)
+                            : game.getCurrentPlayerAgent().makeMove(game.getView());
+                    game.applyMove(move);
+                    ply++;
+                }
+            }
+            game.setCurrentPlayerType(PlayerType.BLACK);
+            game.setTurnNumber(game.getTurnNumber() + 1);
+        }
+        blackAgent.afterGameEnds(game.getView());
+        whiteAgent.afterGameEnds(game.getView());
+
+        boolean blackTimedOut = game.getNumBlackPlayerTimeoutsBeforeAutoLoss() <= 0;
+        boolean whiteTimedOut = game.getNumWhitePlayerTimeoutsBeforeAutoLoss() <= 0;
+        int outcome;
+        if (blackTimedOut) {
+            outcome = -1;
+        } else if (whiteTimedOut) {
+            outcome = 1;
+        } else {
+            Map<PlayerType, Integer> counts = game.getCounts();
+            outcome = Integer.signum(counts.getOrDefault(PlayerType.BLACK, 0)
+                    - counts.getOrDefault(PlayerType.WHITE, 0));
+        }
+        return new Result(black, white, outcome, blackTimedOut, whiteTimedOut, blackAgent, whiteAgent);
+    }
+
+    // a uniformly random legal move, independent of the frontier set's iteration order
+    private static Coordinate randomMove(final Game game, final PlayerType player, final Random random) {
+        List<Coordinate> moves = new ArrayList<Coordinate>(game.getFrontier(player));
+        moves.sort(Comparator.comparingInt((Coordinate c) -> c.getYCoordinate())
+                .thenComparingInt(c -> c.getXCoordinate()));
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    private void record(final Result r) {
+        int outcome = r.outcome;
+        this.tally(r.black, r.white, outcome);
+        this.tally(r.white, r.black, -outcome);
+        if (r.blackTimedOut) {
+            this.timeouts[r.black]++;
+        }
+        if (r.whiteTimedOut) {
+            this.timeouts[r.white]++;
+        }
+        this.recordSearch(r.black, r.blackAgent);
+        this.recordSearch(r.white, r.whiteAgent);
+    }
+
+    private void tally(final int variant, final int opponent, final int outcome) {
+        if (outcome > 0) {
+            this.wins[variant]++;
+            this.pairWins[variant][opponent]++;
+        } else if (outcome < 0) {
+            this.losses[variant]++;
+            this.pairLosses[variant][opponent]++;
+        } else {
+            this.draws[variant]++;
+            this.pairDraws[variant][opponent]++;
+        }
+    }
+
+    private void recordSearch(final int variant, final Agent agent) {
+        if (agent instanceof OthelloAgent) {
+            OthelloAgent a = (OthelloAgent) agent;
+            this.searchedMoves[variant] += a.getSearchedMoves();
+            this.depthSum[variant] += a.getAverageDepth() * a.getSearchedMoves();
+            this.nodes[variant] += a.getSearchedNodes();
+            this.searchNanos[variant] += a.getSearchNanos();
+        }
+    }
+
+    // plays every pairing on every opening with both colour assignments, workers games at a time
+    public void run(final int openings, final int workers, final long seed, final PrintStream progress)
+            throws InterruptedException {
+        int n = this.variants.size();
+        Random random = new Random(seed);
+        long[] openingSeeds = new long[openings];
+        for (int o = 0; o < openings; o++) {
+            openingSeeds[o] = random.nextLong();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        CompletionService<Result> games = new ExecutorCompletionService<Result>(pool);
+        int submitted = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                for (int o = 0; o < openings; o++) {
+                    final int a = i;
+                    final int b = j;
+                    final long openingSeed = openingSeeds[o];
+                    games.submit(() -> this.play(a, b, openingSeed));
+                    games.submit(() -> this.play(b, a, openingSeed));
+                    submitted += 2;
+                }
+            }
+        }
+        long t0 = System.nanoTime();
+        try {
+            for (int done = 1; done <= submitted; done++) {
+                Result r = games.take().get();
+                this.record(r);
+                progress.printf("game %d/%d: %s (black) vs %s (white): %s  [%ds]%n", done, submitted,
+                        this.variants.get(r.black).getName(), this.variants.get(r.white).getName(),
+                        (r.outcome > 0) ? "black wins" : (r.outcome < 0) ? "white wins" : "draw",
+                        (System.nanoTime() - t0) / 1_000_000_000L);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public void report(final PrintStream out) {
+        int n = this.variants.size();
+        double[][] points = new double[n][n];
+        int[][] games = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                points[i][j] = this.pairWins[i][j] + 0.5 * this.pairDraws[i][j];
+                games[i][j] = this.pairWins[i][j] + this.pairDraws[i][j] + this.pairLosses[i][j];
+            }
+        }
+        double[] ratings = Elo.ratings(points, games, 0);
+        double[] errors = Elo.errors(ratings, games, 0);
+
+        out.printf("%-20s %6s %6s %6s %6s %7s %14s %7s %10s %8s%n",
+                "variant", "games", "wins", "draws", "losses", "score", "elo (95%)", "depth", "knps", "timeouts");
+        for (int i = 0; i < n; i++) {
+            int played = this.wins[i] + this.draws[i] + this.losses[i];
+            double score = (played > 0) ? (this.wins[i] + 0.5 * this.draws[i]) / played : 0.0;
+            boolean searched = this.searchedMoves[i] > 0;
+            out.printf("%-20s %6d %6d %6d %6d %7.3f %7.0f +-%4.0f %7s %10s %8d%n",
+                    this.variants.get(i).getName(), played, this.wins[i], this.draws[i], this.losses[i], score,
+                    ratings[i], errors[i],
+                    searched ? String.format("%.2f", this.depthSum[i] / this.searchedMoves[i]) : "-",
+                    searched ? String.format("%.0f", this.nodes[i] / Math.max(1e-9, this.searchNanos[i] / 1e6)) : "-",
+                    this.timeouts[i]);
+        }
+        out.println();
+        out.printf("%-20s %-20s %6s %6s %6s %6s %7s %22s%n",
+                "variant", "opponent", "games", "wins", "draws", "losses", "score", "elo diff (95%)");
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double[] elo = Elo.interval(this.pairWins[i][j], this.pairDraws[i][j], this.pairLosses[i][j]);
+                out.printf("%-20s %-20s %6d %6d %6d %6d %7.3f %7.0f [%6.0f, %6.0f]%n",
+                        this.variants.get(i).getName(), this.variants.get(j).getName(), games[i][j],
+                        this.pairWins[i][j], this.pairDraws[i][j], this.pairLosses[i][j],
+                        points[i][j] / Math.max(1, games[i][j]), elo[1], elo[0], elo[2]);
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        if (args.length < 7) {
+            System.err.println("usage: Tournament [openings] [moveMs] [workers] [openingPlies] [seed] variant variant...");
+            System.exit(1);
+        }
+        int openings = Integer.parseInt(args[0]);
+        long moveMs = Long.parseLong(args[1]);
+        int workers = Integer.parseInt(args[2]);
+        int openingPlies = Integer.parseInt(args[3]);
+        long seed = Long.parseLong(args[4]);
+        List<Variant> variants = new ArrayList<Variant>();
+        for (int i = 5; i < args.length; i++) {
+            variants.add(Variant.parse(args[i]));
+        }
+
+        Tournament tournament = new Tournament(variants, moveMs, openingPlies);
+        PrintStream out = System.out;
+        // agents print every search iteration; keep the report readable
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            tournament.run(openings, workers, seed, System.err);
+        } finally {
+            System.setOut(out);
+        }
+        tournament.report(out);
+        // bundled agents leave non-daemon executor threads behind
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,122 @@
+package src.pas.othello.tournament;
+
+// SYSTEM IMPORTS
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Properties;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.agents.Agent;
+import edu.bu.pas.othello.game.PlayerType;
+import src.pas.othello.agents.OthelloAgent;
+
+/**
+ * One player in a Tournament, parsed from a spec of the form name[:key=value,key=value...].
+ *
+ * If name is an agent class (EasyAgent, MediumAgent, HardAgent, InsaneAgent or RandomAgent from the
+ * bundled jars, or any fully qualified Agent class other than OthelloAgent) the variant is that
+ * agent and takes no options. Otherwise the variant is an OthelloAgent called name, and the options
+ * are othello.* / heur.* properties layered over the system properties for that agent alone, e.g.
+ * classic:othello.eval=classic,heur.baseMob=0.5
+ * The option moveMs overrides the tournament's per-move time for the variant (time odds).
+ */
+public final class Variant
+        extends Object {
+
+    private static final String BUNDLED_PACKAGE = "edu.bu.pas.othello.agents.";
+    private static final String MOVE_MS = "moveMs";
+
+    private final String name;
+    // null for OthelloAgent variants
+    private final Constructor<? extends Agent> bundled;
+    private final Properties config;
+    // 0 to use the tournament's time
+    private final long moveMs;
+
+    private Variant(final String name, final Constructor<? extends Agent> bundled,
+            final Properties config, final long moveMs) {
+        this.name = name;
+        this.bundled = bundled;
+        this.config = config;
+        this.moveMs = moveMs;
+    }
+
+    public static Variant parse(final String spec) {
+        int colon = spec.indexOf(':');
+        String name = (colon < 0) ? spec : spec.substring(0, colon);
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("variant has no name: " + spec);
+        }
+        Constructor<? extends Agent> bundled = bundledAgent(name);
+        if (bundled != null) {
+            if (colon >= 0) {
+                throw new IllegalArgumentException(name + " takes no options: " + spec);
+            }
+            return new Variant(name, bundled, null, 0L);
+        }
+        Properties config = new Properties(System.getProperties());
+        long moveMs = 0L;
+        if (colon >= 0 && colon < spec.length() - 1) {
+            for (String option : spec.substring(colon + 1).split(",")) {
+                int eq = option.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("expected key=value, got '" + option + "' in " + spec);
+                }
+                String key = option.substring(0, eq);
+                String value = option.substring(eq + 1);
+                if (MOVE_MS.equals(key)) {
+                    moveMs = Long.parseLong(value);
+                } else {
+                    config.setProperty(key, value);
+                }
+            }
+        }
+        return new Variant(name, null, config, moveMs);
+    }
+
+    // the constructor of a non-OthelloAgent Agent class called name (short names are looked up in the
+    // bundled agents package), or null
+    private static Constructor<? extends Agent> bundledAgent(final String name) {
+        Class<?> c;
+        try {
+            c = Class.forName(name.contains(".") ? name : BUNDLED_PACKAGE + name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!Agent.class.isAssignableFrom(c) || OthelloAgent.class.isAssignableFrom(c)) {
+            return null;
+        }
+        try {
+            return c.asSubclass(Agent.class).getConstructor(PlayerType.class, long.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(name + " has no (PlayerType, long) constructor");
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean isOthelloAgent() {
+        return this.bundled == null;
+    }
+
+    public long getMoveMs(final long defaultMoveMs) {
+        return (this.moveMs > 0L) ? this.moveMs : defaultMoveMs;
+    }
+
+    public Agent create(final PlayerType playerType, final long defaultMoveMs) {
+        long ms = this.getMoveMs(defaultMoveMs);
+        if (this.bundled == null) {
+            return new OthelloAgent(playerType, ms, this.config);
+        }
+        try {
+            return this.bundled.newInstance(playerType, ms);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("cannot create " + this.name, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("cannot create " + this.name, e.getCause());
+        }
+    }
+
+}
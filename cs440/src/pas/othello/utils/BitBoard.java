@@ -0,0 +1,260 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.othello.game.Game.GameView;
+import edu.bu.pas.othello.game.PlayerType;
+import edu.bu.pas.othello.utils.Coordinate;
+
+/**
+ * Search-internal Othello position stored as two 64-bit masks.
+ *
+ * Square index is row * 8 + col, where row is the y coordinate and col is the x coordinate
+ * (the same layout as GameView.getCells()[row][col]). "mine" always holds the MAX player's discs
+ * and "theirs" the other player's, so heuristics never need to swap perspective.
+ */
+public final class BitBoard
+        extends Object {
+
+    public static final int PASS = -1;
+
+    // masks used to stop shifts from wrapping around the board edges
+    public static final long NOT_A_FILE = 0xFEFEFEFEFEFEFEFEL;
+    public static final long NOT_H_FILE = 0x7F7F7F7F7F7F7F7FL;
+    private static final long INNER_COLS = 0x7E7E7E7E7E7E7E7EL;
+
+    public static final long CORNERS = 0x8100000000000081L;
+
+    // standard start, black to move (row * 8 + col; d4/e5 white, e4/d5 black)
+    public static final long START_PLAYER = 0x0000000810000000L;
+    public static final long START_OPPONENT = 0x0000001008000000L;
+
+    // shift amounts for the 8 directions (positive = <<, negative = >>>) and the matching opponent masks
+    private static final int[] SHIFTS = { 1, -1, 8, -8, 7, -7, 9, -9 };
+    private static final long[] DIR_MASKS = {
+            INNER_COLS, INNER_COLS, -1L, -1L, INNER_COLS, INNER_COLS, INNER_COLS, INNER_COLS
+    };
+
+    private final long mine;
+    private final long theirs;
+    private final boolean maxToMove;
+    private final int lastMove;
+    private final int depth;
+    private final long hash;
+
+    public BitBoard(final long mine, final long theirs, final boolean maxToMove,
+            final int lastMove, final int depth) {
+        this(mine, theirs, maxToMove, lastMove, depth, Zobrist.hash(mine, theirs, maxToMove));
+    }
+
+    private BitBoard(final long mine, final long theirs, final boolean maxToMove,
+            final int lastMove, final int depth, final long hash) {
+        this.mine = mine;
+        this.theirs = theirs;
+        this.maxToMove = maxToMove;
+        this.lastMove = lastMove;
+        this.depth = depth;
+        this.hash = hash;
+    }
+
+    public static BitBoard fromGameView(final GameView gameView, final PlayerType maxPlayerType) {
+        PlayerType[][] cells = gameView.getCells();
+        long mine = 0L;
+        long theirs = 0L;
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                if (cells[r][c] == null) {
+                    continue;
+                }
+                if (cells[r][c] == maxPlayerType) {
+                    mine |= 1L << (r * 8 + c);
+                } else {
+                    theirs |= 1L << (r * 8 + c);
+                }
+            }
+        }
+        return new BitBoard(mine, theirs, gameView.getCurrentPlayerType() == maxPlayerType, PASS, 0);
+    }
+
+    public final long getMine() {
+        return this.mine;
+    }
+
+    public final long getTheirs() {
+        return this.theirs;
+    }
+
+    public final boolean isMaxToMove() {
+        return this.maxToMove;
+    }
+
+    public final int getLastMove() {
+        return this.lastMove;
+    }
+
+    public final int getDepth() {
+        return this.depth;
+    }
+
+    // Zobrist key, maintained incrementally by play()
+    public final long getHash() {
+        return this.hash;
+    }
+
+    // discs of the player whose turn it is
+    public final long getMover() {
+        return this.maxToMove ? this.mine : this.theirs;
+    }
+
+    public final long getWaiter() {
+        return this.maxToMove ? this.theirs : this.mine;
+    }
+
+    public final long legalMoves() {
+        return legalMoves(this.getMover(), this.getWaiter());
+    }
+
+    public final boolean isTerminal() {
+        return this.legalMoves() == 0L && legalMoves(this.getWaiter(), this.getMover()) == 0L;
+    }
+
+    // same convention as OthelloNode.getTerminalUtility
+    public final double getTerminalUtility() {
+        int myCount = Long.bitCount(this.mine);
+        int opCount = Long.bitCount(this.theirs);
+        if (opCount == 0) {
+            return 64d;
+        } else if (myCount == 0) {
+            return -64d;
+        }
+        return myCount - opCount;
+    }
+
+    public final BitBoard play(final int square) {
+        if (square == PASS) {
+            return new BitBoard(this.mine, this.theirs, !this.maxToMove, PASS, this.depth + 1,
+                    Zobrist.pass(this.hash));
+        }
+        long mover = this.getMover();
+        long waiter = this.getWaiter();
+        long flipped = flips(mover, waiter, square);
+        mover |= flipped | (1L << square);
+        waiter &= ~flipped;
+        long childHash = Zobrist.update(this.hash, this.maxToMove, square, flipped);
+        return this.maxToMove
+                ? new BitBoard(mover, waiter, false, square, this.depth + 1, childHash)
+                : new BitBoard(waiter, mover, true, square, this.depth + 1, childHash);
+    }
+
+    public List<BitBoard> getChildren() {
+        long moves = this.legalMoves();
+        List<BitBoard> children = new ArrayList<BitBoard>(Long.bitCount(moves) + 1);
+        if (moves == 0L) {
+            // edge case no legal moves but non terminal
+            children.add(this.play(PASS));
+            return children;
+        }
+        while (moves != 0L) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            children.add(this.play(square));
+        }
+        return children;
+    }
+
+    private static long shift(final long x, final int s) {
+        return (s > 0) ? (x << s) : (x >>> -s);
+    }
+
+    public static long legalMoves(final long player, final long opponent) {
+        long empty = ~(player | opponent);
+        long moves = 0L;
+        for (int d = 0; d < 8; d++) {
+            int s = SHIFTS[d];
+            long o = opponent & DIR_MASKS[d];
+            long t = o & shift(player, s);
+            t |= o & shift(t, s);
+            t |= o & shift(t, s);
+            t |= o & shift(t, s);
+            t |= o & shift(t, s);
+            t |= o & shift(t, s);
+            moves |= empty & shift(t, s);
+        }
+        return moves;
+    }
+
+    // discs flipped when player places on square (does not include the placed disc)
+    public static long flips(final long player, final long opponent, final int square) {
+        long placed = 1L << square;
+        long flipped = 0L;
+        for (int d = 0; d < 8; d++) {
+            int s = SHIFTS[d];
+            long o = opponent & DIR_MASKS[d];
+            long line = 0L;
+            long cur = shift(placed, s);
+            while ((cur & o) != 0L) {
+                line |= cur;
+                cur = shift(cur, s);
+            }
+            if ((cur & player) != 0L) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    // The offline tools (book builder, trainers, benchmarks) play games on a bare { player, opponent }
+    // pair, player to move, rather than on BitBoards; these keep their game loops in one place.
+
+    // { START_PLAYER, START_OPPONENT }
+    public static long[] startPosition() {
+        return new long[] { START_PLAYER, START_OPPONENT };
+    }
+
+    // player places on square and the turn passes: position becomes the opponent's view
+    public static void play(final long[] position, final int square) {
+        long flipped = flips(position[0], position[1], square);
+        long next = position[1] & ~flipped;
+        position[1] = position[0] | flipped | (1L << square);
+        position[0] = next;
+    }
+
+    // player has no move and the turn passes
+    public static void pass(final long[] position) {
+        long swap = position[0];
+        position[0] = position[1];
+        position[1] = swap;
+    }
+
+    // a uniformly random square of moves, which must not be empty
+    public static int randomMove(long moves, final Random random) {
+        int skip = random.nextInt(Long.bitCount(moves));
+        for (int i = 0; i < skip; i++) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    // every square touching a set bit (8-neighbourhood), excluding wrap-around
+    public static long neighbours(final long x) {
+        long h = ((x << 1) & NOT_A_FILE) | ((x >>> 1) & NOT_H_FILE);
+        long row = x | h;
+        return h | (row << 8) | (row >>> 8);
+    }
+
+    public static int toSquare(final Coordinate c) {
+        return c.getYCoordinate() * 8 + c.getXCoordinate();
+    }
+
+    public static Coordinate toCoordinate(final int square) {
+        if (square == PASS) {
+            return null;
+        }
+        return new Coordinate(square & 7, square >>> 3);
+    }
+
+}
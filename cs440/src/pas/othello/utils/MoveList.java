@@ -0,0 +1,83 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Preallocated per-ply buffer of moves and their ordering keys (higher key = searched earlier).
+ * Owned by a SearchBoard so generating children never allocates.
+ */
+public final class MoveList
+        extends Object {
+
+    // the most legal moves seen in a real Othello position is 33; 64 can never overflow
+    private final int[] moves = new int[64];
+    private final double[] keys = new double[64];
+    private int size = 0;
+    private boolean scored = false;
+
+    public void clear() {
+        this.size = 0;
+        this.scored = false;
+    }
+
+    public void add(final int move) {
+        this.keys[this.size] = 0.0;
+        this.moves[this.size++] = move;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getMove(final int i) {
+        return this.moves[i];
+    }
+
+    public double getKey(final int i) {
+        return this.keys[i];
+    }
+
+    public void setKey(final int i, final double key) {
+        this.keys[i] = key;
+    }
+
+    public boolean isScored() {
+        return this.scored;
+    }
+
+    public void setScored(final boolean scored) {
+        this.scored = scored;
+    }
+
+    public void swap(final int i, final int j) {
+        int m = this.moves[i];
+        this.moves[i] = this.moves[j];
+        this.moves[j] = m;
+        double k = this.keys[i];
+        this.keys[i] = this.keys[j];
+        this.keys[j] = k;
+    }
+
+    // move the highest-keyed move in [from, size) to position from (stable: first best wins ties)
+    public int selectBest(final int from) {
+        int best = from;
+        for (int i = from + 1; i < this.size; i++) {
+            if (this.keys[i] > this.keys[best]) {
+                best = i;
+            }
+        }
+        if (best != from) {
+            // shift rather than swap so equal keys keep their generation order
+            int m = this.moves[best];
+            double k = this.keys[best];
+            System.arraycopy(this.moves, from, this.moves, from + 1, best - from);
+            System.arraycopy(this.keys, from, this.keys, from + 1, best - from);
+            this.moves[from] = m;
+            this.keys[from] = k;
+        }
+        return this.moves[from];
+    }
+
+}
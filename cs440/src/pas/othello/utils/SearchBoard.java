@@ -0,0 +1,195 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+import src.pas.othello.heuristics.Heuristics;
+import src.pas.othello.heuristics.IncrementalEvaluator;
+import src.pas.othello.heuristics.PatternEvaluator;
+import src.pas.othello.heuristics.PatternFeatures;
+import src.pas.othello.ordering.MoveHistory;
+
+/**
+ * Mutable counterpart of BitBoard used inside the search: moves are applied in place with
+ * make() and reverted with unmake(), and every ply has its own preallocated MoveList, so a
+ * whole search allocates nothing per node.
+ *
+ * Same conventions as BitBoard: "mine" is the MAX player, ply counts from the root (passes
+ * included) and the Zobrist hash is kept up to date on every make/unmake.
+ */
+public final class SearchBoard
+        extends Object {
+
+    // 60 placements plus at most one pass between each of them
+    public static final int MAX_PLY = 128;
+
+    private long mine;
+    private long theirs;
+    private boolean maxToMove;
+    private long hash;
+    private int ply;
+
+    // undo information, indexed by the ply the move was made from
+    private final int[] moveStack = new int[MAX_PLY];
+    private final long[] flipStack = new long[MAX_PLY];
+    private final long[] hashStack = new long[MAX_PLY];
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+    private final MoveHistory moveHistory = new MoveHistory(MAX_PLY);
+    private final IncrementalEvaluator evaluator;
+    // null unless leaves are evaluated with pattern tables
+    private final PatternFeatures patterns;
+
+    public SearchBoard(final BitBoard root) {
+        this(root, null);
+    }
+
+    // patterns: evaluate() with these pattern tables instead of Heuristics (null for Heuristics)
+    public SearchBoard(final BitBoard root, final PatternEvaluator patterns) {
+        this(root, patterns, Heuristics.Weights.DEFAULT);
+    }
+
+    // weights: the Heuristics term weights used when patterns is null
+    public SearchBoard(final BitBoard root, final PatternEvaluator patterns, final Heuristics.Weights weights) {
+        this.evaluator = new IncrementalEvaluator(MAX_PLY, weights);
+        for (int i = 0; i < MAX_PLY; i++) {
+            this.moveLists[i] = new MoveList();
+        }
+        this.patterns = (patterns != null) ? new PatternFeatures(patterns, MAX_PLY) : null;
+        this.reset(root);
+    }
+
+    public void reset(final BitBoard root) {
+        this.mine = root.getMine();
+        this.theirs = root.getTheirs();
+        this.maxToMove = root.isMaxToMove();
+        this.hash = root.getHash();
+        this.ply = 0;
+        this.evaluator.reset(this.mine, this.theirs);
+        if (this.patterns != null) {
+            this.patterns.reset(this.mine, this.theirs);
+        }
+    }
+
+    public final long getMine() {
+        return this.mine;
+    }
+
+    public final long getTheirs() {
+        return this.theirs;
+    }
+
+    public final boolean isMaxToMove() {
+        return this.maxToMove;
+    }
+
+    public final long getHash() {
+        return this.hash;
+    }
+
+    public final int getPly() {
+        return this.ply;
+    }
+
+    public final long getMover() {
+        return this.maxToMove ? this.mine : this.theirs;
+    }
+
+    public final long getWaiter() {
+        return this.maxToMove ? this.theirs : this.mine;
+    }
+
+    public final long legalMoves() {
+        return BitBoard.legalMoves(this.getMover(), this.getWaiter());
+    }
+
+    public final long opponentMoves() {
+        return BitBoard.legalMoves(this.getWaiter(), this.getMover());
+    }
+
+    // move list for the current ply
+    public final MoveList getMoveList() {
+        return this.moveLists[this.ply];
+    }
+
+    // killers/history; survives reset() so later iterations reuse what earlier ones learned
+    public final MoveHistory getMoveHistory() {
+        return this.moveHistory;
+    }
+
+    public final IncrementalEvaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    // static value of the current board from MAX's point of view: Heuristics.calculateHeuristicValue,
+    // or the pattern evaluation if the board was built with one, both from incrementally kept terms
+    public final double evaluate() {
+        if (this.patterns != null) {
+            return this.patterns.evaluate(this.mine, this.theirs, this.maxToMove);
+        }
+        return this.evaluator.evaluate(this.mine, this.theirs);
+    }
+
+    // same convention as BitBoard.getTerminalUtility
+    public final double getTerminalUtility() {
+        int myCount = Long.bitCount(this.mine);
+        int opCount = Long.bitCount(this.theirs);
+        if (opCount == 0) {
+            return 64d;
+        } else if (myCount == 0) {
+            return -64d;
+        }
+        return myCount - opCount;
+    }
+
+    public void make(final int square) {
+        this.moveStack[this.ply] = square;
+        this.hashStack[this.ply] = this.hash;
+        if (square == BitBoard.PASS) {
+            this.flipStack[this.ply] = 0L;
+            this.hash = Zobrist.pass(this.hash);
+            this.evaluator.make(this.ply, this.maxToMove, square, 0L);
+            if (this.patterns != null) {
+                this.patterns.make(this.ply, this.maxToMove, square, 0L);
+            }
+        } else {
+            long flipped = BitBoard.flips(this.getMover(), this.getWaiter(), square);
+            this.flipStack[this.ply] = flipped;
+            this.hash = Zobrist.update(this.hash, this.maxToMove, square, flipped);
+            this.evaluator.make(this.ply, this.maxToMove, square, flipped);
+            if (this.patterns != null) {
+                this.patterns.make(this.ply, this.maxToMove, square, flipped);
+            }
+            this.toggle(flipped | (1L << square), flipped);
+        }
+        this.maxToMove = !this.maxToMove;
+        this.ply++;
+    }
+
+    public void unmake() {
+        this.ply--;
+        this.maxToMove = !this.maxToMove;
+        this.hash = this.hashStack[this.ply];
+        int square = this.moveStack[this.ply];
+        this.evaluator.unmake(this.ply, square);
+        if (this.patterns != null) {
+            this.patterns.unmake(this.ply);
+        }
+        if (square != BitBoard.PASS) {
+            long flipped = this.flipStack[this.ply];
+            this.toggle(flipped | (1L << square), flipped);
+        }
+    }
+
+    // xor the mover's and waiter's discs (make and unmake are the same operation)
+    private void toggle(final long moverBits, final long waiterBits) {
+        if (this.maxToMove) {
+            this.mine ^= moverBits;
+            this.theirs ^= waiterBits;
+        } else {
+            this.theirs ^= moverBits;
+            this.mine ^= waiterBits;
+        }
+    }
+
+}
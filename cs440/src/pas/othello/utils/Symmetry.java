@@ -0,0 +1,127 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * The 8 symmetries of the board (rotations and reflections) as bitboard transforms.
+ *
+ * Symmetry s (0-7) is applied as: transpose if bit 2 is set, then mirror the rows (top <-> bottom)
+ * if bit 1 is set, then mirror the columns (left <-> right) if bit 0 is set. s = 0 is the identity.
+ * The starting position is unchanged by 0, 3, 4 and 7.
+ *
+ * canonicalSymmetry/canonicalKey give every orientation of a position the same key. The search
+ * uses them for the transposition table and evaluation cache (-Dothello.symmetry=true), and the
+ * opening book stores its positions in canonical orientation.
+ */
+public final class Symmetry
+        extends Object {
+
+    public static final int COUNT = 8;
+
+    private Symmetry() {
+    }
+
+    // (row, col) -> (7 - row, col)
+    public static long mirrorRows(final long x) {
+        return Long.reverseBytes(x);
+    }
+
+    // (row, col) -> (row, 7 - col)
+    public static long mirrorCols(long x) {
+        x = ((x >>> 1) & 0x5555555555555555L) | ((x & 0x5555555555555555L) << 1);
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return x;
+    }
+
+    // (row, col) -> (col, row)
+    public static long transpose(long x) {
+        long t = 0x0F0F0F0F00000000L & (x ^ (x << 28));
+        x ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (x ^ (x << 14));
+        x ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (x ^ (x << 7));
+        x ^= t ^ (t >>> 7);
+        return x;
+    }
+
+    public static long transform(long x, final int s) {
+        if ((s & 4) != 0) {
+            x = transpose(x);
+        }
+        if ((s & 2) != 0) {
+            x = mirrorRows(x);
+        }
+        if ((s & 1) != 0) {
+            x = mirrorCols(x);
+        }
+        return x;
+    }
+
+    // undoes transform(x, s); every step is its own inverse, so just run them backwards
+    public static long inverse(long x, final int s) {
+        if ((s & 1) != 0) {
+            x = mirrorCols(x);
+        }
+        if ((s & 2) != 0) {
+            x = mirrorRows(x);
+        }
+        if ((s & 4) != 0) {
+            x = transpose(x);
+        }
+        return x;
+    }
+
+    public static int transformSquare(final int square, final int s) {
+        if (square == BitBoard.PASS || s == 0) {
+            return square;
+        }
+        return Long.numberOfTrailingZeros(transform(1L << square, s));
+    }
+
+    public static int inverseSquare(final int square, final int s) {
+        if (square == BitBoard.PASS || s == 0) {
+            return square;
+        }
+        return Long.numberOfTrailingZeros(inverse(1L << square, s));
+    }
+
+    // the symmetry that maps (player, opponent) to its canonical form: the smallest (player,
+    // opponent) pair under unsigned comparison, player first. Ties go to the lowest s.
+    public static int canonicalSymmetry(final long player, final long opponent) {
+        int best = 0;
+        long bestPlayer = player;
+        long bestOpponent = opponent;
+        for (int s = 1; s < COUNT; s++) {
+            long p = transform(player, s);
+            int cmp = Long.compareUnsigned(p, bestPlayer);
+            if (cmp > 0) {
+                continue;
+            }
+            long o = transform(opponent, s);
+            if (cmp < 0 || Long.compareUnsigned(o, bestOpponent) < 0) {
+                best = s;
+                bestPlayer = p;
+                bestOpponent = o;
+            }
+        }
+        return best;
+    }
+
+    // 64-bit key of the position after applying symmetry s. With s = canonicalSymmetry(mine, theirs)
+    // every orientation of a position gets the same key, so caches keyed on it fold them together.
+    public static long canonicalKey(final long mine, final long theirs, final boolean maxToMove, final int s) {
+        long h = transform(mine, s) * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(transform(theirs, s) * 0xC2B2AE3D27D4EB4FL, 31);
+        if (maxToMove) {
+            h ^= 0x165667B19E3779F9L;
+        }
+        // splitmix64 finaliser
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+}
@@ -0,0 +1,134 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Fixed-size transposition table keyed by Zobrist hash.
+ *
+ * Each bucket has two slots: slot 0 is depth-preferred (only replaced by an equal or deeper
+ * search, or when it is left over from an older move), slot 1 is always-replace. Entries are
+ * packed into a single long:
+ *
+ * bits 32-63 value (float bits, MAX player's perspective)
+ * bits 24-31 age (search generation, never 0 so an empty slot is data == 0)
+ * bits 16-23 depth (plies searched below the stored node)
+ * bits 10-12 orientation (symmetry the storing search used to fold the position, 0 if none)
+ * bits 8-9 bound type
+ * bits 0-7 best move square (0xFF = none)
+ *
+ * The table is shared by all search threads without locking. Each slot stores key ^ data in the
+ * key array, so a slot torn by two threads writing at once no longer matches its key and reads
+ * as a collision instead of handing back another position's entry.
+ */
+public final class TranspositionTable
+        extends Object {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    // probe results that are not entries (bound bits == 3 never occurs in a stored entry)
+    public static final long EMPTY = 0x300L;
+    public static final long COLLISION = 0x301L;
+
+    private static final int NO_MOVE = 0xFF;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private volatile int age = 1;
+
+    public TranspositionTable(final int log2Buckets) {
+        int buckets = 1 << log2Buckets;
+        this.keys = new long[2 * buckets];
+        this.data = new long[2 * buckets];
+        this.bucketMask = buckets - 1;
+    }
+
+    // call once per move so entries from earlier searches lose their depth-preferred slot
+    public void newSearch() {
+        this.age = (this.age == 0xFF) ? 1 : this.age + 1;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+    }
+
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    // returns the packed entry for key, or EMPTY / COLLISION when there is none
+    public long probe(final long key) {
+        int slot = ((int) key & this.bucketMask) << 1;
+        // read each slot once; another thread may overwrite it between reads
+        long data0 = this.data[slot];
+        if (data0 != 0L && (this.keys[slot] ^ data0) == key) {
+            return data0;
+        }
+        long data1 = this.data[slot + 1];
+        if (data1 != 0L && (this.keys[slot + 1] ^ data1) == key) {
+            return data1;
+        }
+        return (data0 == 0L && data1 == 0L) ? EMPTY : COLLISION;
+    }
+
+    public void store(final long key, final int depth, final int bound, final double value, final int move) {
+        this.store(key, depth, bound, value, move, 0);
+    }
+
+    public void store(final long key, final int depth, final int bound, final double value, final int move,
+            final int orientation) {
+        int slot = ((int) key & this.bucketMask) << 1;
+        long old = this.data[slot];
+        if (old != 0L && age(old) == this.age && depth < depth(old)) {
+            slot++;
+        }
+        long entry = pack(depth, bound, value, move, this.age) | ((long) orientation << 10);
+        this.keys[slot] = key ^ entry;
+        this.data[slot] = entry;
+    }
+
+    private static long pack(final int depth, final int bound, final double value, final int move, final int age) {
+        long bits = Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL;
+        return (bits << 32)
+                | ((long) age << 24)
+                | ((long) Math.min(depth, 0xFF) << 16)
+                | ((long) bound << 8)
+                | (move == BitBoard.PASS ? NO_MOVE : move);
+    }
+
+    public static boolean isEntry(final long entry) {
+        return bound(entry) != 3;
+    }
+
+    public static double value(final long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static int age(final long entry) {
+        return (int) (entry >>> 24) & 0xFF;
+    }
+
+    public static int depth(final long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int bound(final long entry) {
+        return (int) (entry >>> 8) & 0x3;
+    }
+
+    public static int orientation(final long entry) {
+        return (int) (entry >>> 10) & 0x7;
+    }
+
+    public static int move(final long entry) {
+        int move = (int) entry & 0xFF;
+        return (move == NO_MOVE) ? BitBoard.PASS : move;
+    }
+
+}
@@ -0,0 +1,58 @@
+package src.pas.othello.utils;
+
+// SYSTEM IMPORTS
+import java.util.Random;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Zobrist keys for BitBoard positions. Keys are generated from a fixed seed so hashes
+ * (and therefore transposition table behaviour) are reproducible between runs.
+ */
+public final class Zobrist
+        extends Object {
+
+    private static final long[] MINE = new long[64];
+    private static final long[] THEIRS = new long[64];
+    // MINE[sq] ^ THEIRS[sq], i.e. what a flipped disc does to the hash
+    private static final long[] FLIP = new long[64];
+    public static final long MAX_TO_MOVE;
+
+    static {
+        Random random = new Random(0x0DDBA11L);
+        for (int sq = 0; sq < 64; sq++) {
+            MINE[sq] = random.nextLong();
+            THEIRS[sq] = random.nextLong();
+            FLIP[sq] = MINE[sq] ^ THEIRS[sq];
+        }
+        MAX_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long hash(final long mine, final long theirs, final boolean maxToMove) {
+        long h = maxToMove ? MAX_TO_MOVE : 0L;
+        for (long m = mine; m != 0L; m &= m - 1) {
+            h ^= MINE[Long.numberOfTrailingZeros(m)];
+        }
+        for (long t = theirs; t != 0L; t &= t - 1) {
+            h ^= THEIRS[Long.numberOfTrailingZeros(t)];
+        }
+        return h;
+    }
+
+    // hash after the side to move places on square and flips the given discs (side to move toggles too)
+    public static long update(final long hash, final boolean maxMoved, final int square, final long flipped) {
+        long h = hash ^ MAX_TO_MOVE ^ (maxMoved ? MINE[square] : THEIRS[square]);
+        for (long f = flipped; f != 0L; f &= f - 1) {
+            h ^= FLIP[Long.numberOfTrailingZeros(f)];
+        }
+        return h;
+    }
+
+    public static long pass(final long hash) {
+        return hash ^ MAX_TO_MOVE;
+    }
+
+}
@@ -11,7 +11,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.PriorityQueue;
 import java.util.Collections;
 
@@ -25,28 +24,15 @@ import edu.bu.pas.pacman.graph.Path;
 import edu.bu.pas.pacman.graph.PelletGraph.PelletVertex;
 import edu.bu.pas.pacman.utils.Coordinate;
 import edu.bu.pas.pacman.utils.Pair;
+import src.pas.pacman.heuristics.MstCache;
+import src.pas.pacman.heuristics.PelletMst;
+import src.pas.pacman.utils.MazeDistances;
+import src.pas.pacman.utils.PelletState;
 
 public class PacmanAgent
         extends SearchAgent
         implements ThriftyPelletEater {
 
-    // Helper class for edge weights (for mst)
-    static final class Edge implements Comparable<Edge> {
-        Coordinate u, v;
-        final float weight;
-
-        Edge(Coordinate u, Coordinate v, float weight) {
-            this.u = u;
-            this.v = v;
-            this.weight = weight;
-        }
-
-        @Override
-        public int compareTo(Edge other) {
-            return Float.compare(this.weight, other.weight);
-        }
-    }
-
     private final Random random;
     private static final int K_DEFAULT = 4;
 
@@ -79,190 +65,205 @@ public class PacmanAgent
         if (src.equals(dst)) {
             return 0f;
         }
-        Set<Coordinate> srcCoords = src.getRemainingPelletCoordinates();
-        Set<Coordinate> dstCoords = dst.getRemainingPelletCoordinates();
-
-        Coordinate snackCandidate = null;
-        for (Coordinate c : srcCoords) {
-            if (!dstCoords.contains(c)) {
-                snackCandidate = c;
-                break;
-            }
-        }
-
-        Coordinate pacmanCoord = src.getPacmanCoordinate();
-        if (pacmanCoord.equals(snackCandidate)) {
-            return 0f;
-        }
-        Map<MyPair<Coordinate, Coordinate>, Float> trueMazeDistance = getTrueMazeDistance();
-        MyPair<Coordinate, Coordinate> key = new MyPair<>(pacmanCoord, snackCandidate);
-        return trueMazeDistance.get(key);
+        // removePellet moves pacman onto the pellet it eats, so dst's pacman cell is the snack
+        int distance = getMazeDistances().distance(src.getPacmanCoordinate(), dst.getPacmanCoordinate());
+        return (distance == MazeDistances.NONE) ? Float.POSITIVE_INFINITY : distance;
     }
 
     @Override
     public float getHeuristic(final PelletVertex src,
             final GameView game) {
-        float weightMST = 0f;
-        List<Edge> edges = new ArrayList<>();
-        Set<Coordinate> remaining = new HashSet<>(src.getRemainingPelletCoordinates());
-        remaining.add(src.getPacmanCoordinate());
-        List<Coordinate> nodes = new ArrayList<>(remaining); // to access by index
-
-        for (int i = 0; i < nodes.size(); i++) {
-            for (int j = i + 1; j < nodes.size(); j++) { // to avoid double counting
-                Coordinate u = nodes.get(i);
-                Coordinate v = nodes.get(j);
-                // take manhattan distance between points as weight (this is an underestimate)
-                float weight = (Math.abs(u.getXCoordinate() - v.getXCoordinate()) +
-                        Math.abs(u.getYCoordinate() - v.getYCoordinate()));
-                edges.add(new Edge(u, v, weight));
-            }
-        }
-        java.util.Collections.sort(edges); // O(nlog(n))
-
-        Set<Coordinate> inMST = new HashSet<>();
-        // Kruskal's algorithm to find weight of MST
-        for (Edge e : edges) {
-            Coordinate u = e.u;
-            Coordinate v = e.v;
-            if (!inMST.contains(u) || !inMST.contains(v)) {
-                weightMST += e.weight;
-                inMST.add(u);
-                inMST.add(v);
-            }
-        }
-        return weightMST;
+        return getHeuristic(toPelletState(src));
     }
 
-    public class MyPair<F, S> {
-        private F first;
-        private S second;
-
-        public MyPair(F first, S second) {
-            this.first = first;
-            this.second = second;
+    // the search's heuristic, on its internal state: the MST over the remaining pellets (cached,
+    // since it does not depend on pacman) plus the distance from pacman to the nearest of them
+    public float getHeuristic(final PelletState src) {
+        if (src.isEmpty()) {
+            return 0f;
         }
-
-        public F getFirst() {
-            return first;
+        float weightMST = this.mstCache.get(src);
+        if (Float.isNaN(weightMST)) {
+            weightMST = this.pelletMst.weight(src);
+            this.mstCache.put(src, weightMST);
         }
+        return weightMST + getNearestPelletDistance(src);
+    }
 
-        public S getSecond() {
-            return second;
+    // the heuristic of child, which is parent after eating pellet; on a cache miss its MST comes
+    // from parent's
+    public float getHeuristic(final PelletState child, final PelletState parent, final int pellet) {
+        if (child.isEmpty()) {
+            return 0f;
+        }
+        float weightMST = this.mstCache.get(child);
+        if (Float.isNaN(weightMST)) {
+            weightMST = this.pelletMst.weightWithout(parent, pellet);
+            this.mstCache.put(child, weightMST);
         }
+        return weightMST + getNearestPelletDistance(child);
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o)
-                return true;
-            if (o == null || getClass() != o.getClass())
-                return false;
-            MyPair<?, ?> myPair = (MyPair<?, ?>) o;
-            return java.util.Objects.equals(first, myPair.first) &&
-                    java.util.Objects.equals(second, myPair.second);
+    // maze distance from pacman to the closest remaining pellet
+    public float getNearestPelletDistance(final PelletState src) {
+        MazeDistances maze = getMazeDistances();
+        int nearest = Integer.MAX_VALUE;
+        for (int p = src.nextPellet(0); p != -1; p = src.nextPellet(p + 1)) {
+            nearest = Math.min(nearest, maze.distance(src.getPacman(), this.pelletCells[p]));
         }
+        return nearest;
+    }
 
-        @Override
-        public int hashCode() {
-            return java.util.Objects.hash(first, second);
+    // A* bookkeeping for one way of reaching a state: a better way to the same state gets a new
+    // SearchNode, so one in the open queue is stale once the state maps to a different node
+    static final class SearchNode {
+        final PelletState state;
+        final SearchNode parent;
+        final float g;
+        final float f;
+        final int depth;
+        boolean closed = false;
+
+        SearchNode(PelletState state, SearchNode parent, float g, float f, int depth) {
+            this.state = state;
+            this.parent = parent;
+            this.g = g;
+            this.f = f;
+            this.depth = depth;
         }
     }
 
-    // Helper for A*
+    // Helper for A*: searches over PelletStates and only builds PelletVertices for the answer
     public Path<PelletVertex> AstarK(final PelletVertex start, final PelletVertex goal, final GameView game,
             final int k) {
+        MazeDistances maze = getMazeDistances();
+        PelletState startState = toPelletState(start);
+        PelletState goalState = toPelletState(goal);
 
-        Map<PelletVertex, Float> gScore = new HashMap<>(); // stores the (true) cost to reach a node
-        gScore.put(start, 0f);
-
-        Map<PelletVertex, PelletVertex> parents = new HashMap<>(); // stores the parent of each node for path
-                                                                   // reconstruction
-        parents.put(start, null);
-        Set<PelletVertex> closedSet = new HashSet<>(); // stores the nodes with finalized best cost
-
-        PriorityQueue<MyPair<Float, PelletVertex>> open = new PriorityQueue<>(
-                Comparator.comparing((MyPair<Float, PelletVertex> p) -> p.getFirst()));
+        // the best known way to each state seen so far
+        Map<PelletState, SearchNode> best = new HashMap<>();
+        // lowest f first; on ties the deeper node, which is closer to eating everything
+        PriorityQueue<SearchNode> open = new PriorityQueue<>((a, b) -> (a.f != b.f)
+                ? Float.compare(a.f, b.f)
+                : Integer.compare(b.depth, a.depth));
 
-        open.add(new MyPair<>(getHeuristic(start, game), start));
-
-        Map<PelletVertex, Integer> depth = new HashMap<>();
-        depth.put(start, 0);
+        SearchNode root = new SearchNode(startState, null, 0f, getHeuristic(startState), 0);
+        best.put(startState, root);
+        open.add(root);
 
         while (!open.isEmpty()) {
-            MyPair<Float, PelletVertex> currentPair = open.poll();
-            PelletVertex current = currentPair.getSecond();
-
-            // We need to manually simulate decrease-key operation which don't exist in Java
-            // by default
-            float bestCurrentF = gScore.getOrDefault(current, Float.MAX_VALUE)
-                    + getHeuristic(current, game);
-            if (currentPair.getFirst() > bestCurrentF) {
+            SearchNode current = open.poll();
+            if (current.closed || best.get(current.state) != current) {
                 continue;
             }
-
-            if ((current.getRemainingPelletCoordinates()).equals(goal.getRemainingPelletCoordinates())) {
-                return constructPath(parents, start, current);
-            }
-            if (depth.get(current) >= k) {
-                return constructPath(parents, start, current);
+            if (current.state.samePellets(goalState) || current.depth >= k) {
+                return constructPath(current, start);
             }
-
-            if (closedSet.contains(current)) {
-                continue;
-            } else {
-                closedSet.add(current);
-            }
-
-            Set<PelletVertex> children = getOutoingNeighbors(current, game);
-            children.remove(current);
-            for (PelletVertex child : children) {
-                if (closedSet.contains(child)) {
+            current.closed = true;
+
+            PelletState state = current.state;
+            for (int p = state.nextPellet(0); p != -1; p = state.nextPellet(p + 1)) {
+                int cell = this.pelletCells[p];
+                float g = current.g + maze.distance(state.getPacman(), cell); // true cost so far
+                PelletState child = state.eat(p, cell);
+                SearchNode known = best.get(child);
+                if (known != null && known.g <= g) {
                     continue;
                 }
-                float currentBestG = gScore.get(current) + getEdgeWeight(current, child); // true cost so far
-
-                if (currentBestG < gScore.getOrDefault(child, Float.MAX_VALUE)) {
-                    parents.put(child, current);
-                    gScore.put(child, currentBestG);
-                    depth.put(child, depth.get(current) + 1);
-                    float f = currentBestG + getHeuristic(child, game);
-                    open.add(new MyPair<>(f, child)); // add the child for analysis
-                }
+                // a better way to a closed state reopens it
+                SearchNode next = new SearchNode(child, current, g, g + getHeuristic(child, state, p),
+                        current.depth + 1);
+                best.put(child, next);
+                open.add(next);
             }
         }
         return null;
     }
 
-    public Path<PelletVertex> constructPath(Map<PelletVertex, PelletVertex> parents, PelletVertex start,
-            PelletVertex goal) {
-        List<PelletVertex> s = new ArrayList<>();
-        s.add(goal);
-        while (!goal.equals(start)) {
-            goal = parents.get(goal);
-            if (goal == null) {
-                return null; // shouldn't happen but in case
-            }
-            s.add(goal);
+    // the PelletVertex path from start to node's state, eating the pellets in the same order
+    public Path<PelletVertex> constructPath(SearchNode node, PelletVertex start) {
+        List<SearchNode> s = new ArrayList<>();
+        for (SearchNode n = node; n.parent != null; n = n.parent) {
+            s.add(n);
         }
         Collections.reverse(s);
-        Path<PelletVertex> path = new Path<>(s.get(0));
-        for (int i = 1; i < s.size(); i++) {
-            PelletVertex prev = s.get(i - 1);
-            PelletVertex next = s.get(i);
-            float weight = getEdgeWeight(prev, next);
-            path = new Path<>(next, weight, path);
+        MazeDistances maze = getMazeDistances();
+        Path<PelletVertex> path = new Path<>(start);
+        PelletVertex prev = start;
+        for (SearchNode n : s) {
+            PelletVertex next = prev.removePellet(maze.coordinate(n.state.getPacman()));
+            path = new Path<>(next, n.g - n.parent.g, path);
+            prev = next;
         }
         return path;
     }
 
-    private Map<MyPair<Coordinate, Coordinate>, Float> trueMazeDistance = new HashMap<>();
+    // pellet index -> maze cell id, and maze cell id -> pellet index (or -1), for the pellets pacman
+    // can reach; set with the maze distances
+    private int[] pelletCells = null;
+    private int[] pelletIndices = null;
+    // MST weights of the pellet sets seen while planning, keyed by the masks of that numbering, and
+    // the MSTs they are computed with
+    private MstCache mstCache = null;
+    private PelletMst pelletMst = null;
+
+    // the last plan's heuristic cache; its counters give the lookups, hit rate and evictions
+    public MstCache getMstCache() {
+        return this.mstCache;
+    }
 
-    public Map<MyPair<Coordinate, Coordinate>, Float> getTrueMazeDistance() {
-        return this.trueMazeDistance;
+    // numbers the reachable pellets of vertex (by cell id) for PelletState masks
+    public void setPellets(PelletVertex vertex) {
+        MazeDistances maze = getMazeDistances();
+        int[] indices = new int[maze.size()];
+        java.util.Arrays.fill(indices, -1);
+        for (Coordinate c : vertex.getRemainingPelletCoordinates()) {
+            int cell = maze.id(c);
+            if (cell != MazeDistances.NONE) {
+                indices[cell] = 0;
+            }
+        }
+        int count = 0;
+        for (int cell = 0; cell < indices.length; cell++) {
+            if (indices[cell] == 0) {
+                indices[cell] = count++;
+            }
+        }
+        int[] cells = new int[count];
+        for (int cell = 0; cell < indices.length; cell++) {
+            if (indices[cell] >= 0) {
+                cells[indices[cell]] = cell;
+            }
+        }
+        this.pelletCells = cells;
+        this.pelletIndices = indices;
+        this.mstCache = new MstCache();
+        this.pelletMst = new PelletMst(maze, cells);
     }
 
-    public void setTrueMazeDistance(Map<MyPair<Coordinate, Coordinate>, Float> m) {
-        this.trueMazeDistance = m;
+    // vertex as a search state; pellets pacman cannot reach are left out
+    public PelletState toPelletState(PelletVertex vertex) {
+        MazeDistances maze = getMazeDistances();
+        long[] mask = PelletState.emptyMask(this.pelletCells.length);
+        for (Coordinate c : vertex.getRemainingPelletCoordinates()) {
+            int cell = maze.id(c);
+            int p = (cell == MazeDistances.NONE) ? -1 : this.pelletIndices[cell];
+            if (p >= 0) {
+                mask[p >>> 6] |= 1L << p;
+            }
+        }
+        return new PelletState(mask, maze.id(vertex.getPacmanCoordinate()));
+    }
+
+    // true maze distances between the cells pacman can reach, set when a plan is made
+    private MazeDistances mazeDistances = null;
+
+    public MazeDistances getMazeDistances() {
+        return this.mazeDistances;
+    }
+
+    public void setMazeDistances(MazeDistances m) {
+        this.mazeDistances = m;
     }
 
     public Path<PelletVertex> appendPelletPaths(Path<PelletVertex> a,
@@ -298,53 +299,12 @@ public class PacmanAgent
 
     @Override
     public Path<PelletVertex> findPathToEatAllPelletsTheFastest(final GameView game) {
-        // find all coordinates reachable from pacman
-        Set<Coordinate> initCoordinates = new HashSet<>();
+        // store the distance from every reachable cell to every other one
         Coordinate pacmanCoord = game.getEntity(this.getPacmanId()).getCurrentCoordinate();
-        initCoordinates.add(pacmanCoord);
-        Set<Coordinate> tooExplore = new HashSet<>();
-        tooExplore.add(pacmanCoord);
-        while (!tooExplore.isEmpty()) {
-            Coordinate current = tooExplore.iterator().next();
-            tooExplore.remove(current);
-            Set<Coordinate> neighbors = getOutgoingNeighbors(current, game);
-            for (Coordinate neighbor : neighbors) {
-                if (!initCoordinates.contains(neighbor)) {
-                    initCoordinates.add(neighbor);
-                    tooExplore.add(neighbor);
-                }
-            }
-        }
-        // store the distance from every coordinate to every other coordinate in O(n^2)
-        // time
-        Map<MyPair<Coordinate, Coordinate>, Float> trueMazeDistance = new HashMap<>();
-
-        for (Coordinate c : initCoordinates) {
-            Set<Coordinate> Visited = new HashSet<>();
-            Float cost = 1f;
-            Set<Coordinate> toExplore = new HashSet<>();
-            toExplore.add(c);
-            Set<Coordinate> nextlayer = new HashSet<>();
-
-            while (!toExplore.isEmpty()) {
-                for (Coordinate u : toExplore) {
-                    Visited.add(u);
-                    Set<Coordinate> neighbors = getOutgoingNeighbors(u, game);
-                    for (Coordinate v : neighbors) {
-                        if (!Visited.contains(v)) {
-                            trueMazeDistance.put(new MyPair<>(c, v), cost);
-                            nextlayer.add(v);
-                        }
-                    }
-                }
-                cost += 1f;
-                toExplore = nextlayer;
-                nextlayer = new HashSet<>();
-            }
-        }
-        setTrueMazeDistance(trueMazeDistance);
+        setMazeDistances(MazeDistances.compute(game, pacmanCoord));
 
         PelletVertex start = new PelletVertex(game);
+        setPellets(start);
         // the goal is the state with no remaining pellets
         PelletVertex goal = new PelletVertex(game);
         for (Coordinate p : start.getRemainingPelletCoordinates()) {
@@ -0,0 +1,129 @@
+package src.pas.pacman.heuristics;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+import src.pas.pacman.utils.PelletState;
+
+/**
+ * Bounded cache of minimum-spanning-tree weights keyed by the set of remaining pellets.
+ *
+ * The MST over the pellets does not depend on where pacman is, and A* meets the same pellet set
+ * again and again with pacman on different cells, so most heuristic calls can be answered from
+ * here. The table is set-associative, like a transposition table: a set of WAYS entries is chosen
+ * by the pellet hash, and a full set evicts by the clock (second-chance) rule, skipping entries
+ * read since the hand last passed them. Keys are the states' own masks, which never change, so
+ * nothing is copied or allocated on a lookup or a store.
+ */
+public final class MstCache
+        extends Object {
+
+    public static final int WAYS = 4;
+    public static final int DEFAULT_BITS = 16;
+
+    private final int setMask;
+    // entry (set * WAYS + way): its pellet mask (null if empty), the mask's hash and the MST weight
+    private final long[][] keys;
+    private final int[] hashes;
+    private final float[] weights;
+    // clock bits, set when an entry is read or stored
+    private final boolean[] referenced;
+    // the clock hand of each set
+    private final byte[] hands;
+
+    private long lookups = 0L;
+    private long hits = 0L;
+    private long evictions = 0L;
+
+    // a cache of 2^bits entries
+    public MstCache(final int bits) {
+        if (bits < 2 || bits > 28) {
+            throw new IllegalArgumentException("bits must be in [2, 28], got " + bits);
+        }
+        int entries = 1 << bits;
+        this.setMask = entries / WAYS - 1;
+        this.keys = new long[entries][];
+        this.hashes = new int[entries];
+        this.weights = new float[entries];
+        this.referenced = new boolean[entries];
+        this.hands = new byte[entries / WAYS];
+    }
+
+    public MstCache() {
+        this(DEFAULT_BITS);
+    }
+
+    private int set(final int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & this.setMask;
+    }
+
+    // the cached MST weight of state's pellets, or NaN if it is not in the cache
+    public float get(final PelletState state) {
+        this.lookups++;
+        int hash = state.pelletHash();
+        long[] pellets = state.getPellets();
+        int base = this.set(hash) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (this.keys[i] != null && this.hashes[i] == hash && Arrays.equals(this.keys[i], pellets)) {
+                this.hits++;
+                this.referenced[i] = true;
+                return this.weights[i];
+            }
+        }
+        return Float.NaN;
+    }
+
+    // stores weight for state's pellets, which must not be in the cache already
+    public void put(final PelletState state, final float weight) {
+        int set = this.set(state.pelletHash());
+        int base = set * WAYS;
+        int hand = this.hands[set];
+        // an empty way if there is one, otherwise the first unreferenced way from the hand on,
+        // clearing the clock bits passed over
+        int victim = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            if (this.keys[i] == null) {
+                victim = i;
+                break;
+            }
+        }
+        if (victim < 0) {
+            while (this.referenced[base + hand]) {
+                this.referenced[base + hand] = false;
+                hand = (hand + 1) % WAYS;
+            }
+            victim = base + hand;
+            this.hands[set] = (byte) ((hand + 1) % WAYS);
+            this.evictions++;
+        }
+        this.keys[victim] = state.getPellets();
+        this.hashes[victim] = state.pelletHash();
+        this.weights[victim] = weight;
+        this.referenced[victim] = true;
+    }
+
+    public long getLookups() {
+        return this.lookups;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    public double getHitRate() {
+        return (this.lookups > 0L) ? (double) this.hits / this.lookups : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lookups, %.1f%% hits, %d evictions", this.lookups, 100.0 * this.getHitRate(),
+                this.evictions);
+    }
+
+}
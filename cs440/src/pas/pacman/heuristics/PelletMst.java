@@ -0,0 +1,154 @@
+package src.pas.pacman.heuristics;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+import src.pas.pacman.utils.MazeDistances;
+import src.pas.pacman.utils.PelletState;
+
+/**
+ * Minimum spanning trees over sets of pellets, weighted by true maze distance.
+ *
+ * The pellets are a complete graph, so the tree is found with the array form of Prim's algorithm:
+ * O(n^2) distance reads, no edge list and no sorting. Maze distance is a metric no smaller than
+ * the manhattan distance, so the bound is still admissible and much tighter than one built on
+ * manhattan distance.
+ *
+ * A* asks for the trees of all of a state's children, each one pellet short of it. weightWithout
+ * answers those from the parent's tree, which is built once and kept: removing a leaf of an MST
+ * leaves an MST of the rest (every cycle through the other pellets avoids the leaf), so a leaf's
+ * child costs the parent's weight less the leaf's edge. Removing an inner pellet splits the tree,
+ * and that child is rebuilt with Prim over the remaining pellets.
+ *
+ * The arrays are reused from call to call, so an instance belongs to one search thread.
+ */
+public final class PelletMst
+        extends Object {
+
+    private final MazeDistances maze;
+    // pellet index -> maze cell id
+    private final int[] pelletCells;
+
+    // the state whose tree is kept, and its weight
+    private PelletState built = null;
+    private float weight = 0f;
+    // tree members by position: their cell ids, tree parent position (-1 for the root), the weight
+    // of the edge to the parent, and how many tree edges touch them
+    private int size = 0;
+    private final int[] cells;
+    private final int[] parents;
+    private final float[] edges;
+    private final int[] degrees;
+    // pellet index -> position in the kept tree
+    private final int[] positions;
+    // Prim's scratch: cheapest known edge into the tree and where it comes from
+    private final float[] keys;
+    private final int[] via;
+    private final boolean[] inTree;
+
+    public PelletMst(final MazeDistances maze, final int[] pelletCells) {
+        this.maze = maze;
+        this.pelletCells = pelletCells;
+        int n = pelletCells.length;
+        this.cells = new int[n];
+        this.parents = new int[n];
+        this.edges = new float[n];
+        this.degrees = new int[n];
+        this.positions = new int[n];
+        this.keys = new float[n];
+        this.via = new int[n];
+        this.inTree = new boolean[n];
+    }
+
+    // weight of the MST over state's pellets; the tree is kept for weightWithout
+    public float weight(final PelletState state) {
+        if (state != this.built) {
+            this.size = 0;
+            for (int p = state.nextPellet(0); p != -1; p = state.nextPellet(p + 1)) {
+                this.positions[p] = this.size;
+                this.cells[this.size++] = this.pelletCells[p];
+            }
+            this.weight = this.prim(-1, true);
+            this.built = state;
+        }
+        return this.weight;
+    }
+
+    // weight of the MST over parent's pellets except pellet, which parent must contain
+    public float weightWithout(final PelletState parent, final int pellet) {
+        this.weight(parent);
+        int removed = this.positions[pellet];
+        if (this.degrees[removed] == 0) {
+            return 0f;
+        }
+        if (this.degrees[removed] == 1) {
+            if (this.parents[removed] >= 0) {
+                return this.weight - this.edges[removed];
+            }
+            // a root leaf: its one edge is stored on its only child
+            for (int i = 0; i < this.size; i++) {
+                if (this.parents[i] == removed) {
+                    return this.weight - this.edges[i];
+                }
+            }
+        }
+        return this.prim(removed, false);
+    }
+
+    // Prim over the kept members except position exclude (-1 for none); with keep, the tree is
+    // recorded in parents, edges and degrees
+    private float prim(final int exclude, final boolean keep) {
+        int n = this.size;
+        int count = (exclude >= 0) ? n - 1 : n;
+        if (keep) {
+            Arrays.fill(this.degrees, 0, n, 0);
+        }
+        if (count <= 1) {
+            if (keep && n == 1) {
+                this.parents[0] = -1;
+            }
+            return 0f;
+        }
+        int root = (exclude == 0) ? 1 : 0;
+        for (int i = 0; i < n; i++) {
+            this.inTree[i] = (i == exclude);
+            this.keys[i] = this.maze.distance(this.cells[root], this.cells[i]);
+            this.via[i] = root;
+        }
+        this.inTree[root] = true;
+        if (keep) {
+            this.parents[root] = -1;
+        }
+
+        float total = 0f;
+        for (int added = 1; added < count; added++) {
+            int u = -1;
+            for (int i = 0; i < n; i++) {
+                if (!this.inTree[i] && (u < 0 || this.keys[i] < this.keys[u])) {
+                    u = i;
+                }
+            }
+            this.inTree[u] = true;
+            total += this.keys[u];
+            if (keep) {
+                this.parents[u] = this.via[u];
+                this.edges[u] = this.keys[u];
+                this.degrees[u]++;
+                this.degrees[this.via[u]]++;
+            }
+            int cell = this.cells[u];
+            for (int i = 0; i < n; i++) {
+                if (!this.inTree[i]) {
+                    int d = this.maze.distance(cell, this.cells[i]);
+                    if (d < this.keys[i]) {
+                        this.keys[i] = d;
+                        this.via[i] = u;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+}
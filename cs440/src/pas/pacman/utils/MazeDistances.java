@@ -0,0 +1,188 @@
+package src.pas.pacman.utils;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// JAVA PROJECT IMPORTS
+import edu.bu.pas.pacman.game.Action;
+import edu.bu.pas.pacman.game.Game.GameView;
+import edu.bu.pas.pacman.utils.Coordinate;
+
+/**
+ * True maze distances between every pair of cells pacman can reach, in one flat table.
+ *
+ * The reachable cells get compact ids 0..size-1 (in flood-fill order from pacman's cell), and the
+ * distance from a to b is distances[a * size + b], filled by one breadth-first search per cell. A
+ * lookup is an array read: nothing is boxed or allocated, unlike a map keyed on coordinate pairs.
+ * Distances are shorts, which covers any board whose reachable cells fit in a short; the table
+ * takes 2 * size^2 bytes.
+ *
+ * The searches are independent, so on boards with at least PARALLEL_MIN_CELLS cells they are spread
+ * over a fork-join pool: each worker claims sources from a shared counter and writes only their
+ * rows, reusing one queue and visited bitset of its own for all of them.
+ */
+public final class MazeDistances
+        extends Object {
+
+    // id of a cell pacman cannot reach, and the distance between cells that cannot reach each other
+    public static final int NONE = -1;
+
+    // below this many cells the searches are too quick to be worth handing to other threads
+    public static final int PARALLEL_MIN_CELLS = 256;
+
+    private static final Action[] MOVES = { Action.NORTH, Action.WEST, Action.EAST, Action.SOUTH };
+    private static final int[] DX = { 0, -1, 1, 0 };
+    private static final int[] DY = { -1, 0, 0, 1 };
+
+    private final int yDimension;
+    // x * yDimension + y -> cell id, or NONE
+    private final int[] ids;
+    // cell id -> coordinate
+    private final Coordinate[] cells;
+    // cell id * 4 + k -> id of the k-th neighbour (north, west, east, south), or NONE
+    private final int[] neighbors;
+    private final short[] distances;
+
+    private MazeDistances(final int yDimension, final int[] ids, final Coordinate[] cells, final int[] neighbors) {
+        this.yDimension = yDimension;
+        this.ids = ids;
+        this.cells = cells;
+        this.neighbors = neighbors;
+        this.distances = new short[cells.length * cells.length];
+    }
+
+    // one worker's share of the searches: it takes sources from next until none are left
+    private final class Searches
+            extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final AtomicInteger next;
+
+        private Searches(final AtomicInteger next) {
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            int size = MazeDistances.this.cells.length;
+            int[] queue = new int[size];
+            long[] visited = new long[(size + 63) >>> 6];
+            for (int source = this.next.getAndIncrement(); source < size; source = this.next.getAndIncrement()) {
+                MazeDistances.this.search(source, queue, visited);
+            }
+        }
+    }
+
+    public static MazeDistances compute(final GameView game, final Coordinate start) {
+        return compute(game, start, ForkJoinPool.commonPool());
+    }
+
+    // the cells reachable from start (under the pacman move rules) and the distances between them,
+    // searched on up to pool's parallelism threads
+    public static MazeDistances compute(final GameView game, final Coordinate start, final ForkJoinPool pool) {
+        int xDimension = game.getXBoardDimension();
+        int yDimension = game.getYBoardDimension();
+        int[] ids = new int[xDimension * yDimension];
+        Arrays.fill(ids, NONE);
+
+        // flood fill from start to number the reachable cells
+        Coordinate[] cells = new Coordinate[ids.length];
+        int size = 0;
+        ids[start.getXCoordinate() * yDimension + start.getYCoordinate()] = size;
+        cells[size++] = start;
+        for (int head = 0; head < size; head++) {
+            Coordinate c = cells[head];
+            for (int k = 0; k < MOVES.length; k++) {
+                if (game.isLegalPacmanMove(c, MOVES[k])) {
+                    int x = c.getXCoordinate() + DX[k];
+                    int y = c.getYCoordinate() + DY[k];
+                    if (ids[x * yDimension + y] == NONE) {
+                        ids[x * yDimension + y] = size;
+                        cells[size++] = new Coordinate(x, y);
+                    }
+                }
+            }
+        }
+        if (size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("too many reachable cells for a distance table: " + size);
+        }
+
+        int[] neighbors = new int[size * MOVES.length];
+        for (int id = 0; id < size; id++) {
+            Coordinate c = cells[id];
+            for (int k = 0; k < MOVES.length; k++) {
+                neighbors[id * MOVES.length + k] = game.isLegalPacmanMove(c, MOVES[k])
+                        ? ids[(c.getXCoordinate() + DX[k]) * yDimension + c.getYCoordinate() + DY[k]]
+                        : NONE;
+            }
+        }
+
+        MazeDistances maze = new MazeDistances(yDimension, ids, Arrays.copyOf(cells, size), neighbors);
+        AtomicInteger next = new AtomicInteger();
+        int workers = (size < PARALLEL_MIN_CELLS) ? 1 : pool.getParallelism();
+        if (workers <= 1) {
+            maze.new Searches(next).compute();
+        } else {
+            Searches[] searches = new Searches[workers];
+            for (int i = 0; i < workers; i++) {
+                searches[i] = maze.new Searches(next);
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(searches)));
+        }
+        return maze;
+    }
+
+    // breadth-first search from source, filling its row
+    private void search(final int source, final int[] queue, final long[] visited) {
+        int size = this.cells.length;
+        int row = source * size;
+        Arrays.fill(this.distances, row, row + size, (short) NONE);
+        Arrays.fill(visited, 0L);
+        visited[source >>> 6] |= 1L << source;
+        this.distances[row + source] = 0;
+        queue[0] = source;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            short next = (short) (this.distances[row + u] + 1);
+            for (int k = u * MOVES.length; k < (u + 1) * MOVES.length; k++) {
+                int v = this.neighbors[k];
+                if (v != NONE && (visited[v >>> 6] & (1L << v)) == 0L) {
+                    visited[v >>> 6] |= 1L << v;
+                    this.distances[row + v] = next;
+                    queue[tail++] = v;
+                }
+            }
+        }
+    }
+
+    // number of reachable cells
+    public int size() {
+        return this.cells.length;
+    }
+
+    // id of the cell at c, or NONE if pacman cannot reach it
+    public int id(final Coordinate c) {
+        return this.ids[c.getXCoordinate() * this.yDimension + c.getYCoordinate()];
+    }
+
+    public Coordinate coordinate(final int id) {
+        return this.cells[id];
+    }
+
+    // number of moves from cell a to cell b, or NONE if there is no way there
+    public int distance(final int a, final int b) {
+        return this.distances[a * this.cells.length + b];
+    }
+
+    // NONE as well if pacman cannot reach a or b
+    public int distance(final Coordinate a, final Coordinate b) {
+        int from = this.id(a);
+        int to = this.id(b);
+        return (from == NONE || to == NONE) ? NONE : this.distance(from, to);
+    }
+
+}
@@ -0,0 +1,115 @@
+package src.pas.pacman.utils;
+
+// SYSTEM IMPORTS
+import java.util.Arrays;
+
+// JAVA PROJECT IMPORTS
+
+/**
+ * Compact search state for eating pellets: the remaining pellets as a bitmask over pellet indices
+ * (bit i of pellets[i >>> 6]) and pacman's cell as a MazeDistances id.
+ *
+ * Equal states have equal masks and cells, so hashing and equality cost a few word compares
+ * instead of walking a Set of Coordinates, and a state takes (pellets / 64 + 4) words instead of a
+ * hash set entry per pellet. The hashes (of the whole state, and of the pellets alone for caches
+ * that ignore pacman) are computed once, when the state is made. States are immutable: eat()
+ * returns a new one and the mask is never written after construction.
+ */
+public final class PelletState
+        extends Object {
+
+    private final long[] pellets;
+    private final int pacman;
+    private final int remaining;
+    private final int pelletHash;
+    private final int hash;
+
+    public PelletState(final long[] pellets, final int pacman) {
+        this.pellets = pellets;
+        this.pacman = pacman;
+        int count = 0;
+        for (long word : pellets) {
+            count += Long.bitCount(word);
+        }
+        this.remaining = count;
+        this.pelletHash = Arrays.hashCode(pellets);
+        this.hash = this.pelletHash * 31 + pacman;
+    }
+
+    // a mask long enough for pellet indices 0..count-1
+    public static long[] emptyMask(final int count) {
+        return new long[(count + 63) >>> 6];
+    }
+
+    public int getPacman() {
+        return this.pacman;
+    }
+
+    // the mask itself, not a copy: callers must not write to it
+    public long[] getPellets() {
+        return this.pellets;
+    }
+
+    // hash of the mask alone
+    public int pelletHash() {
+        return this.pelletHash;
+    }
+
+    public int getRemaining() {
+        return this.remaining;
+    }
+
+    public boolean isEmpty() {
+        return this.remaining == 0;
+    }
+
+    public boolean contains(final int pellet) {
+        return (this.pellets[pellet >>> 6] & (1L << pellet)) != 0L;
+    }
+
+    // the smallest remaining pellet index >= from, or -1 if there is none
+    public int nextPellet(final int from) {
+        int w = from >>> 6;
+        if (w >= this.pellets.length) {
+            return -1;
+        }
+        long word = this.pellets[w] & (-1L << from);
+        while (word == 0L) {
+            if (++w == this.pellets.length) {
+                return -1;
+            }
+            word = this.pellets[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    // the state after pacman walks to cell and eats pellet there
+    public PelletState eat(final int pellet, final int cell) {
+        long[] next = this.pellets.clone();
+        next[pellet >>> 6] &= ~(1L << pellet);
+        return new PelletState(next, cell);
+    }
+
+    // whether both states have the same pellets left, wherever pacman is
+    public boolean samePellets(final PelletState other) {
+        return this.pelletHash == other.pelletHash && Arrays.equals(this.pellets, other.pellets);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PelletState)) {
+            return false;
+        }
+        PelletState other = (PelletState) o;
+        return this.hash == other.hash && this.pacman == other.pacman && Arrays.equals(this.pellets, other.pellets);
+    }
+
+}